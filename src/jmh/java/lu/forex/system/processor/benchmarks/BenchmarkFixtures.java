@@ -0,0 +1,57 @@
+package lu.forex.system.processor.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import lu.forex.system.processor.enums.Symbol;
+import lu.forex.system.processor.services.TickGeneratorService;
+
+/**
+ * Reproducible tick exports for the benchmarks from the {@link TickGeneratorService} with a fixed seed, so every run of every commit measures the same data.
+ */
+public final class BenchmarkFixtures {
+
+  public static final int TICKS = 200_000;
+  private static final long SEED = 20240101L;
+  private static final LocalDate START = LocalDate.of(2024, 1, 1);
+  private static final double TICKS_PER_SECOND = 0.5;
+
+  private BenchmarkFixtures() {
+  }
+
+  public static byte[] getTickBytes(final int ticks) {
+    return TickGeneratorService.getTickBytes(Symbol.EURUSD, START, TICKS_PER_SECOND, SEED, ticks);
+  }
+
+  /**
+   * @return A tick export in its own temporary folder, with the name the preprocessor expects
+   */
+  public static File getTickFile(final int ticks) {
+    try {
+      final File folder = Files.createTempDirectory("benchmark").toFile();
+      final File tickFile = new File(folder, "EURUSD_benchmark.csv");
+      Files.write(tickFile.toPath(), getTickBytes(ticks));
+      return tickFile;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Delete the temporary folder of a tick export of {@link #getTickFile(int)}, with the caches and reports written next to it.
+   */
+  public static void deleteTickFile(final File tickFile) {
+    try (final Stream<Path> paths = Files.walk(tickFile.getParentFile().toPath())) {
+      for (final Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(path);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
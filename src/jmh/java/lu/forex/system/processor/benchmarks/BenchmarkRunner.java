@@ -0,0 +1,29 @@
+package lu.forex.system.processor.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Takes the usual JMH options and always adds the GC profiler, for the allocation rate, and a JSON result file, to
+ * compare the runs of different commits.
+ */
+public class BenchmarkRunner {
+
+  private static final String RESULT_FILE = "jmh-result.json";
+
+  public static void main(final String[] args) throws CommandLineOptionException, RunnerException {
+    final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    final ChainedOptionsBuilder optionsBuilder = new OptionsBuilder().parent(commandLineOptions).addProfiler(GCProfiler.class)
+        .jvmArgsAppend("-Dlog4j2.configurationFile=log4j2-benchmark.xml");
+    if (!commandLineOptions.getResultFormat().hasValue()) {
+      optionsBuilder.resultFormat(ResultFormatType.JSON).result(RESULT_FILE);
+    }
+    new Runner(optionsBuilder.build()).run();
+  }
+}
@@ -0,0 +1,101 @@
+package lu.forex.system.processor.benchmarks;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import lu.forex.system.processor.enums.NumericMode;
+import lu.forex.system.processor.enums.Symbol;
+import lu.forex.system.processor.enums.TimeFrame;
+import lu.forex.system.processor.models.Candlestick;
+import lu.forex.system.processor.models.CandlestickRepository;
+import lu.forex.system.processor.models.Tick;
+import lu.forex.system.processor.services.AdxService;
+import lu.forex.system.processor.services.AdxService.AdxState;
+import lu.forex.system.processor.services.CandlestickService;
+import lu.forex.system.processor.services.RsiService;
+import lu.forex.system.processor.services.TickCacheService;
+import lu.forex.system.processor.utils.TimeFrameUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Candlestick aggregation of every timeframe, in ticks per second, and the indicators of one candlestick, in calculations per second, in both numeric modes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CandlestickBenchmark {
+
+  private static final int REPOSITORY_SIZE = 14;
+
+  @Param({"EXACT", "FAST"})
+  private NumericMode numericMode;
+
+  private File tickFile;
+  private List<Pair<Tick, Tick>> ticks;
+  private CandlestickRepository candlestickRepository;
+  private AdxState adxState;
+
+  @Setup
+  public void setup() {
+    this.tickFile = BenchmarkFixtures.getTickFile(BenchmarkFixtures.TICKS);
+    try (final Stream<Pair<Tick, Tick>> tickStream = TickCacheService.getTicks(this.tickFile)) {
+      this.ticks = tickStream.toList();
+    }
+    final List<Candlestick> candlesticks = CandlestickService.getCandlesticks(this.ticks.stream(), TimeFrame.M15, Symbol.EURUSD).limit(REPOSITORY_SIZE * 10L).toList();
+    this.candlestickRepository = new CandlestickRepository(REPOSITORY_SIZE);
+    candlesticks.subList(candlesticks.size() - REPOSITORY_SIZE, candlesticks.size()).forEach(this.candlestickRepository::addFirst);
+    this.adxState = AdxService.getInitState(this.numericMode);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    BenchmarkFixtures.deleteTickFile(this.tickFile);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BenchmarkFixtures.TICKS)
+  public void getCandlesticks(final Blackhole blackhole) {
+    CandlestickService.getCandlesticks(this.ticks.stream(), CandlestickService.getInitState(Arrays.asList(TimeFrame.values()), this.numericMode), Symbol.EURUSD)
+        .forEach(blackhole::consume);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BenchmarkFixtures.TICKS)
+  public void getCandlestickTimestamp(final Blackhole blackhole) {
+    for (final Pair<Tick, Tick> tickTickPair : this.ticks) {
+      blackhole.consume(TimeFrameUtils.getCandlestickTimestamp(tickTickPair.getKey().getDateTime(), TimeFrame.M15));
+    }
+  }
+
+  @Benchmark
+  public Candlestick adx() {
+    AdxService.calculate(this.adxState, this.candlestickRepository.get(0), this.candlestickRepository.get(1));
+    return this.candlestickRepository.getFirst();
+  }
+
+  @Benchmark
+  public Candlestick rsi() {
+    RsiService.calculate(this.candlestickRepository, this.numericMode);
+    return this.candlestickRepository.getFirst();
+  }
+}
@@ -0,0 +1,79 @@
+package lu.forex.system.processor.benchmarks;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lu.forex.system.processor.enums.Symbol;
+import lu.forex.system.processor.enums.TimeFrame;
+import lu.forex.system.processor.models.Candlestick;
+import lu.forex.system.processor.models.Trade;
+import lu.forex.system.processor.services.CandlestickStoreService;
+import lu.forex.system.processor.services.TradeService;
+import lu.forex.system.processor.services.TradeService.PreTrade;
+import lu.forex.system.processor.services.TradeService.TimeScope;
+import lu.forex.system.processor.utils.PrintsUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The report writers, in reports per second, on a smaller fixture than the other benchmarks since every candlestick is a row. The candlestick report reads
+ * the {@code .candles} store, which is built once in the setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dresult.cache.maxMb=0")
+public class PrintsBenchmark {
+
+  private static final int TICKS = BenchmarkFixtures.TICKS / 10;
+
+  private File tickFile;
+  private File candlestickTickFile;
+  private File outputFolder;
+  private List<Trade> trades;
+
+  @Setup
+  public void setup() {
+    this.tickFile = BenchmarkFixtures.getTickFile(BenchmarkFixtures.TICKS);
+    this.outputFolder = this.tickFile.getParentFile();
+    final Map<TimeFrame, List<Candlestick>> timeFrameCandlesticksMap = TradeService.getCandlestickLists(this.tickFile, Arrays.asList(TimeFrame.values()), Symbol.EURUSD);
+    final Map<TimeFrame, Map<TimeScope, List<PreTrade>>> timeFrameScopeMap = new EnumMap<>(TimeFrame.class);
+    timeFrameCandlesticksMap.forEach((timeFrame, candlesticks) -> timeFrameScopeMap.put(timeFrame, TradeService.getTimeScopeListMap(timeFrame, Symbol.EURUSD, candlesticks)));
+    this.trades = TradeService.getTrades(this.tickFile, Symbol.EURUSD, timeFrameScopeMap).get(TimeFrame.M15);
+    this.candlestickTickFile = BenchmarkFixtures.getTickFile(TICKS);
+    CandlestickStoreService.getCandlestickStore(this.candlestickTickFile, TimeFrame.M15, Symbol.EURUSD);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    BenchmarkFixtures.deleteTickFile(this.tickFile);
+    BenchmarkFixtures.deleteTickFile(this.candlestickTickFile);
+  }
+
+  @Benchmark
+  public File printTradesExcel() {
+    PrintsUtils.printTradesExcel(this.trades, TimeFrame.M15, Symbol.EURUSD, this.outputFolder);
+    return this.outputFolder;
+  }
+
+  @Benchmark
+  public File printCandlesticksExcel() {
+    PrintsUtils.printCandlesticksExcel(this.candlestickTickFile, TimeFrame.M15, Symbol.EURUSD, this.outputFolder);
+    return this.outputFolder;
+  }
+}
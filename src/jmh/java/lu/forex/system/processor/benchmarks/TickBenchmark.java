@@ -0,0 +1,80 @@
+package lu.forex.system.processor.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import lu.forex.system.processor.services.TickLineParser;
+import lu.forex.system.processor.services.TickService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Tick parsing, in ticks per second: the {@link String} parser of {@link TickService#getTicks(BufferedReader)} against the byte-level {@link TickLineParser},
+ * alone and through {@link TickService#readTicks(File, TickService.TickConsumer)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickBenchmark {
+
+  private byte[] tickBytes;
+  private int[] lineStarts;
+  private File tickFile;
+
+  @Setup
+  public void setup() {
+    this.tickBytes = BenchmarkFixtures.getTickBytes(BenchmarkFixtures.TICKS);
+    this.lineStarts = IntStream.concat(IntStream.of(0), IntStream.range(0, this.tickBytes.length).filter(i -> this.tickBytes[i] == '\n').map(i -> i + 1)).toArray();
+    this.tickFile = BenchmarkFixtures.getTickFile(BenchmarkFixtures.TICKS);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    BenchmarkFixtures.deleteTickFile(this.tickFile);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BenchmarkFixtures.TICKS)
+  public void getTicks(final Blackhole blackhole) {
+    final BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(this.tickBytes), StandardCharsets.US_ASCII));
+    TickService.getTicks(bufferedReader).forEach(blackhole::consume);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BenchmarkFixtures.TICKS)
+  public void tickLineParser(final Blackhole blackhole) {
+    final TickLineParser tickLineParser = new TickLineParser();
+    // the first line is the header, the last start is the end of the file
+    for (int line = 1; line < this.lineStarts.length - 1; line++) {
+      tickLineParser.parse(this.tickBytes, this.lineStarts[line], this.lineStarts[line + 1] - 1);
+      blackhole.consume(tickLineParser.getEpochMilli());
+      blackhole.consume(tickLineParser.getFixedBid());
+      blackhole.consume(tickLineParser.getFixedAsk());
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BenchmarkFixtures.TICKS)
+  public long readTicks(final Blackhole blackhole) {
+    return TickService.readTicks(this.tickFile, (epochMilli, fixedBid, fixedAsk) -> blackhole.consume(epochMilli + fixedBid + fixedAsk));
+  }
+}
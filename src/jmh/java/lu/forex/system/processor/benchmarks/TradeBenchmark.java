@@ -0,0 +1,76 @@
+package lu.forex.system.processor.benchmarks;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import lu.forex.system.processor.enums.Symbol;
+import lu.forex.system.processor.enums.TimeFrame;
+import lu.forex.system.processor.models.Candlestick;
+import lu.forex.system.processor.models.Trade;
+import lu.forex.system.processor.services.TradeService;
+import lu.forex.system.processor.services.TradeService.PreTrade;
+import lu.forex.system.processor.services.TradeService.TimeScope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Trade simulation of the fixture signals, in simulations per second. The result cache is off, so every call does the work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dresult.cache.maxMb=0")
+public class TradeBenchmark {
+
+  private File tickFile;
+  private Map<TimeFrame, List<Candlestick>> timeFrameCandlesticksMap;
+  private Map<TimeFrame, Map<TimeScope, List<PreTrade>>> timeFrameScopeMap;
+
+  @Setup
+  public void setup() {
+    this.tickFile = BenchmarkFixtures.getTickFile(BenchmarkFixtures.TICKS);
+    this.timeFrameCandlesticksMap = TradeService.getCandlestickLists(this.tickFile, Arrays.asList(TimeFrame.values()), Symbol.EURUSD);
+    this.setupPreTrades();
+  }
+
+  /**
+   * The simulation closes the pre-trades, so every call gets new ones.
+   */
+  @Setup(Level.Invocation)
+  public void setupPreTrades() {
+    this.timeFrameScopeMap = new EnumMap<>(TimeFrame.class);
+    this.timeFrameCandlesticksMap.forEach((timeFrame, candlesticks) -> this.timeFrameScopeMap.put(timeFrame, TradeService.getTimeScopeListMap(timeFrame, Symbol.EURUSD, candlesticks)));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    BenchmarkFixtures.deleteTickFile(this.tickFile);
+  }
+
+  @Benchmark
+  public Map<TimeFrame, List<Trade>> getTrades() {
+    return TradeService.getTrades(this.tickFile, Symbol.EURUSD, this.timeFrameScopeMap);
+  }
+
+  @Benchmark
+  public Trade getTrade() {
+    final Entry<TimeScope, List<PreTrade>> timeScopeEntry = this.timeFrameScopeMap.get(TimeFrame.H1).entrySet().iterator().next();
+    return TradeService.getTrade(this.tickFile, Symbol.EURUSD, timeScopeEntry.getValue(), timeScopeEntry.getKey(), TradeService.getRangerProfit(), TimeFrame.H1);
+  }
+}
@@ -0,0 +1,39 @@
+package lu.forex.system.processor;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import lu.forex.system.processor.enums.Symbol;
+import lu.forex.system.processor.enums.TimeFrame;
+import lu.forex.system.processor.services.IndicatorComparisonService;
+import lu.forex.system.processor.services.IndicatorComparisonService.IndicatorComparison;
+
+/**
+ * Compare the fast double indicators with the exact decimal ones on the tick files of a folder: {@code rootFolder inputFolder}. Exits with 1 when a candlestick
+ * signal differs between the two modes.
+ */
+@Log4j2
+public class IndicatorComparisonController {
+
+  public static void main(String @NonNull [] args) {
+    final File inputFolder = new File(args[0], args[1]);
+    final File[] inputFiles = Arrays.stream(Objects.requireNonNull(inputFolder.listFiles()))
+        .filter(file -> Arrays.stream(Symbol.values()).anyMatch(symbol -> symbol.name().equals(file.getName().split("_")[0]))).sorted().toArray(File[]::new);
+
+    long signalFlips = 0;
+    for (final File inputFile : inputFiles) {
+      final Symbol symbol = Symbol.valueOf(inputFile.getName().split("_")[0]);
+      final Map<TimeFrame, IndicatorComparison> timeFrameComparisonMap = IndicatorComparisonService.compare(inputFile, Arrays.asList(TimeFrame.values()), symbol);
+      signalFlips += timeFrameComparisonMap.values().stream().mapToLong(IndicatorComparison::getSignalFlips).sum();
+    }
+
+    if (signalFlips > 0) {
+      log.warn("{} candlestick signals differ between the fast and the exact indicators", signalFlips);
+      System.exit(1);
+    }
+    log.warn("End of process ! The fast and the exact indicators give the same signals on {} files", inputFiles.length);
+  }
+}
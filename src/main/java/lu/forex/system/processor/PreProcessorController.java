@@ -1,93 +1,201 @@
 package lu.forex.system.processor;
 
 import java.io.File;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 import lu.forex.system.processor.enums.Symbol;
 import lu.forex.system.processor.enums.TimeFrame;
 import lu.forex.system.processor.models.Candlestick;
 import lu.forex.system.processor.models.Trade;
+import lu.forex.system.processor.services.MetricsService;
+import lu.forex.system.processor.services.MetricsService.Counter;
+import lu.forex.system.processor.services.MetricsService.Histogram;
+import lu.forex.system.processor.services.MetricsService.Reporter;
+import lu.forex.system.processor.services.PipelineService;
+import lu.forex.system.processor.services.PipelineService.Channel;
+import lu.forex.system.processor.services.PipelineService.MemoryBudget;
+import lu.forex.system.processor.services.PipelineService.Pipeline;
+import lu.forex.system.processor.services.ResultCacheService;
+import lu.forex.system.processor.services.TickCacheService;
 import lu.forex.system.processor.services.TradeService;
 import lu.forex.system.processor.services.TradeService.PreTrade;
+import lu.forex.system.processor.services.TradeService.RangerProfit;
 import lu.forex.system.processor.services.TradeService.TimeScope;
 import lu.forex.system.processor.utils.PrintsUtils;
-import org.apache.commons.lang3.tuple.Pair;
-import org.apache.commons.lang3.tuple.Triple;
 
 @Log4j2
 public class PreProcessorController {
 
+  private static final int CPU_WORKERS = Runtime.getRuntime().availableProcessors();
+  private static final int READ_WORKERS = 2;
+  private static final int PRINT_WORKERS = 2;
+  private static final int STAGE_CAPACITY = 2;
+  // Estimated heap of the candlesticks and pre-trades of one file, as a fraction of the tick file size
+  private static final double HEAP_BYTES_PER_FILE_BYTE = 0.25;
+  private static final long HEAP_BUDGET = Long.getLong("preprocessor.heapBudgetMb", Runtime.getRuntime().maxMemory() / 2 / (1L << 20)) * (1L << 20);
+  private static final Duration METRICS_PERIOD = Duration.ofSeconds(Long.getLong("metrics.periodSeconds", 30L));
+  private static final Counter FILES_FINISHED = MetricsService.getCounter("files_finished_total");
+  private static final Histogram REPORT_DURATION = MetricsService.getStageHistogram("report");
+
   public static void main(String @NonNull [] args) {
+    if (args.length != 3 && args.length != 5) {
+      throw new IllegalArgumentException("Usage: <root folder> <input folder> <output folder> [<take profits> <stop loss risks>], got " + Arrays.toString(args));
+    }
     final File rootFolder = new File(args[0]);
     final File inputFolder = new File(rootFolder, args[1]);
     final File outputFolder = new File(rootFolder, args[2]);
+    // Optional sweep grid: comma separated take profits and stop loss risks, e.g. "100,150,200" "0.5,0.7"
+    final List<RangerProfit> rangerProfits = args.length > 4 ? TradeService.getRangerProfits(getDecimals(args[3]), getDecimals(args[4])) : List.of(TradeService.getRangerProfit());
+
+    start(inputFolder, outputFolder, rangerProfits);
 
-    start(inputFolder, outputFolder);
+  }
 
+  private static @NonNull List<BigDecimal> getDecimals(final @NonNull String values) {
+    // without trailing zeros, so 7.5 and 7.50 are the same ranger profit
+    return Arrays.stream(values.split(",")).map(String::trim).map(BigDecimal::new).map(BigDecimal::stripTrailingZeros).toList();
   }
 
-  private static void start(final @NonNull File inputFolder, final File outputFolder) {
-    final List<File> inputFiles = Arrays.stream(Objects.requireNonNull(inputFolder.listFiles())).filter(file -> Arrays.stream(Symbol.values()).anyMatch(symbol -> symbol.name().equals(file.getName().split("_")[0]))).toList();
-    log.info("Number of files to read {}", inputFiles.size());
-    final List<Pair<File, TimeFrame>> filePairs = inputFiles.parallelStream().flatMap(inputFile -> Arrays.stream(TimeFrame.values()).map(timeFrame -> Pair.of(inputFile, timeFrame))).toList();
-    log.info("Number of timeframes x files to read {}", filePairs.size());
-    final List<TradesInfo> tradesInfos = filePairs.parallelStream().flatMap(pair -> {
-      final File inputFile = pair.getLeft();
-      final TimeFrame timeFrame = pair.getRight();
-      final Symbol symbol = Symbol.valueOf(inputFile.getName().split("_")[0]);
-      final List<Candlestick> candlestickList = TradeService.getCandlestickList(inputFile, timeFrame, symbol);
-      return TradeService.getTimeScopeListMap(timeFrame, symbol, candlestickList).entrySet().parallelStream().map(timeScopeMapEntry -> {
-        final TimeScope timeScope = timeScopeMapEntry.getKey();
-        final List<PreTrade> profitListMap = timeScopeMapEntry.getValue();
-        return new TradesInfo(inputFile, timeFrame, symbol, candlestickList, timeScope, profitListMap);
+  private static void start(final @NonNull File inputFolder, final File outputFolder, final @NonNull List<RangerProfit> rangerProfits) {
+    // the biggest files first, so they don't keep the run going alone at the end
+    final List<File> inputFiles = Arrays.stream(Objects.requireNonNull(inputFolder.listFiles())).filter(file -> Arrays.stream(Symbol.values()).anyMatch(symbol -> symbol.name().equals(file.getName().split("_")[0])))
+        .sorted(Comparator.comparingLong(File::length).reversed()).toList();
+    // the reports are named by symbol and timeframe, so the trades of the files of a symbol are printed together
+    final Map<Symbol, SymbolTrades> symbolTradesMap = new EnumMap<>(Symbol.class);
+    inputFiles.stream().collect(Collectors.groupingBy(PreProcessorController::getSymbol, Collectors.counting()))
+        .forEach((symbol, files) -> symbolTradesMap.put(symbol, new SymbolTrades(files.intValue())));
+    final MemoryBudget memoryBudget = PipelineService.getMemoryBudget(HEAP_BUDGET);
+    log.info("Number of files to read {} with {} TP/SL pairs and a heap budget of {} MB", inputFiles.size(), rangerProfits.size(), memoryBudget.getBlocks());
+
+    final AtomicInteger filesCounter = new AtomicInteger(0);
+
+    // read -> aggregate -> simulate -> print, with bounded queues between the stages so I/O and CPU overlap without piling up candles
+    // the reporter writes the metrics snapshots until the pipeline is done, then a last time when closed
+    final Reporter reporter = MetricsService.startReporter(outputFolder, METRICS_PERIOD);
+    try (reporter; final Pipeline pipeline = PipelineService.getPipeline("preprocessor")) {
+      final Channel<File> files = pipeline.source("files", inputFiles, STAGE_CAPACITY);
+
+      final Channel<SymbolJob> readJobs = pipeline.stage("read", READ_WORKERS, STAGE_CAPACITY, files, inputFile -> {
+        final SymbolJob symbolJob = new SymbolJob(inputFile, getSymbol(inputFile));
+        TickCacheService.getTickCache(inputFile);
+        return symbolJob;
       });
-    }).toList();
-    log.info("Number of trades: {}", tradesInfos.size());
-
-    AtomicInteger tradesCounter = new AtomicInteger(0);
-
-    tradesInfos.parallelStream().map(tradesInfo -> {
-      final File inputFile = tradesInfo.getInputFile();
-      final TimeFrame timeFrame = tradesInfo.getTimeFrame();
-      final Symbol symbol = tradesInfo.getSymbol();
-      final TimeScope timeScope = tradesInfo.getTimeScope();
-      final List<PreTrade> profitListMap = tradesInfo.getProfitListMap();
-      final Trade trade = TradeService.getTrade(inputFile, symbol, profitListMap, timeScope, TradeService.getRangerProfit(), timeFrame);
-      final int incremented = tradesCounter.incrementAndGet();
-      final double finished = (incremented * 100.0)/tradesInfos.size();
-      log.info("Number of trades finished: {} of {} -> {}%", incremented, tradesInfos.size(), finished);
-      return Triple.of(timeFrame, symbol, trade);
-    }).collect(Collectors.groupingBy(triple -> Pair.of(triple.getLeft(), triple.getMiddle()))).forEach((timeFrameSymbolPair, triples) -> {
-      final List<Trade> tradeList = triples.stream().map(Triple::getRight).filter(Objects::nonNull).toList();
-      final TimeFrame timeFrame = timeFrameSymbolPair.getLeft();
-      final Symbol symbol = timeFrameSymbolPair.getRight();
-      PrintsUtils.printTradesExcel(tradeList, timeFrame, symbol, outputFolder);
-    });
+
+      final Channel<SymbolJob> aggregatedJobs = pipeline.stage("aggregate", CPU_WORKERS, STAGE_CAPACITY, readJobs, symbolJob -> {
+        final Symbol symbol = symbolJob.getSymbol();
+        symbolJob.setTimeFrameTradesMap(ResultCacheService.getTrades(symbolJob.getInputFile(), symbol, Arrays.asList(TimeFrame.values()), rangerProfits));
+        if (Objects.nonNull(symbolJob.getTimeFrameTradesMap())) {
+          return symbolJob;
+        }
+        symbolJob.setBudgetBlocks(memoryBudget.acquire((long) (symbolJob.getInputFile().length() * HEAP_BYTES_PER_FILE_BYTE)));
+        final Map<TimeFrame, List<Candlestick>> timeFrameCandlesticksMap = TradeService.getCandlestickLists(symbolJob.getInputFile(), Arrays.asList(TimeFrame.values()), symbol);
+        symbolJob.setTimeFrameScopeMap(timeFrameCandlesticksMap.entrySet().stream()
+            .collect(Collectors.toMap(Entry::getKey, entry -> TradeService.getTimeScopeListMap(entry.getKey(), symbol, entry.getValue(), rangerProfits), (a, b) -> a, () -> new EnumMap<>(TimeFrame.class))));
+        log.info("Number of trades to simulate from symbol {}: {}", symbol.name(), symbolJob.getTimeFrameScopeMap().values().stream().mapToInt(Map::size).sum());
+        return symbolJob;
+      });
+
+      final Channel<SymbolJob> simulatedJobs = pipeline.stage("simulate", CPU_WORKERS, STAGE_CAPACITY, aggregatedJobs, symbolJob -> {
+        if (Objects.isNull(symbolJob.getTimeFrameTradesMap())) {
+          symbolJob.setTimeFrameTradesMap(TradeService.getTrades(symbolJob.getInputFile(), symbolJob.getSymbol(), symbolJob.getTimeFrameScopeMap()));
+          symbolJob.setTimeFrameScopeMap(null);
+          memoryBudget.release(symbolJob.getBudgetBlocks());
+          ResultCacheService.putTrades(symbolJob.getInputFile(), symbolJob.getSymbol(), symbolJob.getTimeFrameTradesMap(), rangerProfits);
+        }
+        FILES_FINISHED.increment();
+        final int incremented = filesCounter.incrementAndGet();
+        final double finished = (incremented * 100.0) / inputFiles.size();
+        log.info("Number of files finished: {} of {} -> {}%", incremented, inputFiles.size(), finished);
+        return symbolJob;
+      });
+
+      pipeline.sink("print", PRINT_WORKERS, simulatedJobs, symbolJob -> {
+        final Map<TimeFrame, List<Trade>> timeFrameTradesMap = symbolTradesMap.get(symbolJob.getSymbol()).add(symbolJob);
+        if (Objects.nonNull(timeFrameTradesMap)) {
+          printTrades(symbolJob.getSymbol(), timeFrameTradesMap, outputFolder, rangerProfits);
+        }
+      });
+    }
 
     log.warn("End of process !");
   }
 
+  private static @NonNull Symbol getSymbol(final @NonNull File inputFile) {
+    return Symbol.valueOf(inputFile.getName().split("_")[0]);
+  }
+
+  private static void printTrades(final @NonNull Symbol symbol, final @NonNull Map<TimeFrame, List<Trade>> timeFrameTradesMap, final File outputFolder,
+      final @NonNull List<RangerProfit> rangerProfits) {
+    final long start = System.nanoTime();
+    if (rangerProfits.size() == 1) {
+      timeFrameTradesMap.forEach((timeFrame, tradeList) -> PrintsUtils.printTradesExcel(tradeList, timeFrame, symbol, outputFolder));
+    } else {
+      timeFrameTradesMap.forEach((timeFrame, tradeList) -> rangerProfits.forEach(rangerProfit -> PrintsUtils.printTradesExcel(
+          tradeList.stream().filter(rangerProfit::isProfitOf).toList(), timeFrame, symbol, outputFolder, rangerProfit.getSuffix())));
+    }
+    REPORT_DURATION.recordSince(start);
+  }
+
+  /**
+   * The work of one input file as it moves through the pipeline stages.
+   */
   @Getter
-  @EqualsAndHashCode
+  @Setter
   @RequiredArgsConstructor
-  private static class TradesInfo {
+  private static class SymbolJob {
+
     private final File inputFile;
-    private final TimeFrame timeFrame;
     private final Symbol symbol;
-    private final List<Candlestick> candlestickList;
+    private Map<TimeFrame, Map<TimeScope, List<PreTrade>>> timeFrameScopeMap;
+    private Map<TimeFrame, List<Trade>> timeFrameTradesMap;
+    private int budgetBlocks;
+  }
+
+  /**
+   * The trades of the files of one symbol, merged in the order of the file names once every file is simulated.
+   */
+  @RequiredArgsConstructor
+  private static class SymbolTrades {
+
+    private final int files;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Map<TimeFrame, List<Trade>>> fileTradesMap = new TreeMap<>();
 
-    private final TimeScope timeScope;
-    private final List<PreTrade> profitListMap;
+    /**
+     * @return The trades of every timeframe of the symbol when the job is its last file, null before
+     */
+    private Map<TimeFrame, List<Trade>> add(final @NonNull SymbolJob symbolJob) {
+      this.lock.lock();
+      try {
+        this.fileTradesMap.put(symbolJob.getInputFile().getName(), symbolJob.getTimeFrameTradesMap());
+        if (this.fileTradesMap.size() < this.files) {
+          return null;
+        }
+        final Map<TimeFrame, List<Trade>> timeFrameTradesMap = new EnumMap<>(TimeFrame.class);
+        this.fileTradesMap.values().forEach(fileTimeFrameTradesMap -> fileTimeFrameTradesMap.forEach(
+            (timeFrame, trades) -> timeFrameTradesMap.computeIfAbsent(timeFrame, key -> new ArrayList<>()).addAll(trades)));
+        return timeFrameTradesMap;
+      } finally {
+        this.lock.unlock();
+      }
+    }
   }
 
 }
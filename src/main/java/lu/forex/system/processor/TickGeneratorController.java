@@ -0,0 +1,38 @@
+package lu.forex.system.processor;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import lu.forex.system.processor.enums.Symbol;
+import lu.forex.system.processor.services.PipelineService;
+import lu.forex.system.processor.services.PipelineService.Pipeline;
+import lu.forex.system.processor.services.TickGeneratorService;
+
+/**
+ * Generate synthetic tick files to size and load test the preprocessor: {@code rootFolder outputFolder from to ticksPerSecond [seed] [symbols]}, e.g.
+ * {@code /data generated 2020-01-01 2024-01-01 3.5 42 EURUSD,USDJPY}. Every symbol is written in parallel to its own file.
+ */
+@Log4j2
+public class TickGeneratorController {
+
+  private static final long DEFAULT_SEED = 42L;
+
+  public static void main(String @NonNull [] args) {
+    final File outputFolder = new File(new File(args[0]), args[1]);
+    final LocalDate from = LocalDate.parse(args[2]);
+    final LocalDate to = LocalDate.parse(args[3]);
+    final double ticksPerSecond = Double.parseDouble(args[4]);
+    final long seed = args.length > 5 ? Long.parseLong(args[5]) : DEFAULT_SEED;
+    final List<Symbol> symbols = args.length > 6 ? Arrays.stream(args[6].split(",")).map(String::trim).map(Symbol::valueOf).toList() : List.of(Symbol.values());
+
+    log.info("Generating {} ticks per second of {} from {} to {} with seed {}", ticksPerSecond, symbols, from, to, seed);
+    try (final Pipeline pipeline = PipelineService.getPipeline("generator")) {
+      pipeline.sink("generate", symbols.size(), pipeline.source("symbols", symbols, symbols.size()),
+          symbol -> TickGeneratorService.generateTickFile(outputFolder, symbol, from, to, ticksPerSecond, seed));
+    }
+    log.warn("End of process !");
+  }
+}
@@ -0,0 +1,18 @@
+package lu.forex.system.processor.enums;
+
+import java.util.Locale;
+import lombok.NonNull;
+
+/**
+ * Arithmetic of the ADX/RSI indicators. {@link #EXACT} is the {@link java.math.BigDecimal} reference at {@link lu.forex.system.processor.utils.MathUtils#SCALE}
+ * decimals, {@link #FAST} computes the same formulas with doubles. The mode of a run is {@code -Dindicator.numericMode=fast|exact}, exact by default.
+ */
+public enum NumericMode {
+  EXACT, FAST;
+
+  private static final NumericMode DEFAULT = NumericMode.valueOf(System.getProperty("indicator.numericMode", EXACT.name()).toUpperCase(Locale.ROOT));
+
+  public static @NonNull NumericMode getDefault() {
+    return DEFAULT;
+  }
+}
@@ -1,13 +1,11 @@
 package lu.forex.system.processor.enums;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.DayOfWeek;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NonNull;
 import lu.forex.system.processor.models.Tick;
-import lu.forex.system.processor.utils.MathUtils;
+import lu.forex.system.processor.utils.PriceUtils;
 
 @Getter
 @AllArgsConstructor
@@ -19,16 +17,18 @@ public enum SignalIndicator {
   public enum OrderType {
     BUY, SELL;
 
-    @NonNull
-    public BigDecimal getProfit(final @NonNull Tick lastTick, final @NonNull Tick currentTick, final @NonNull Symbol symbol) {
-      final BigDecimal tmpProfit = switch (this) {
-        case BUY -> currentTick.getBid().subtract(lastTick.getBid()).divide(symbol.getPip(), MathUtils.SCALE, RoundingMode.HALF_UP);
-        case SELL -> lastTick.getAsk().subtract(currentTick.getAsk()).divide(symbol.getPip(), MathUtils.SCALE, RoundingMode.HALF_UP);
+    /**
+     * @return The fixed profit, see {@link PriceUtils#toProfit(long)}
+     */
+    public long getProfit(final @NonNull Tick lastTick, final @NonNull Tick currentTick, final @NonNull Symbol symbol) {
+      final long tmpProfit = switch (this) {
+        case BUY -> PriceUtils.getFixedPips(currentTick.getFixedBid() - lastTick.getFixedBid(), symbol.getFixedPip());
+        case SELL -> PriceUtils.getFixedPips(lastTick.getFixedAsk() - currentTick.getFixedAsk(), symbol.getFixedPip());
       };
       if (lastTick.getDateTime().getDayOfWeek().equals(DayOfWeek.TUESDAY) && currentTick.getDateTime().getDayOfWeek().equals(DayOfWeek.WEDNESDAY)) {
         return switch (this) {
-          case BUY -> tmpProfit.add(symbol.getSwapLong());
-          case SELL -> tmpProfit.add(symbol.getSwapShort());
+          case BUY -> tmpProfit + symbol.getFixedSwapLong();
+          case SELL -> tmpProfit + symbol.getFixedSwapShort();
         };
       } else {
         return tmpProfit;
@@ -0,0 +1,35 @@
+package lu.forex.system.processor.enums;
+
+import java.util.List;
+import java.util.Locale;
+import lombok.NonNull;
+
+/**
+ * Combination of the signals of the indicators of a run into the signal of the candlestick. {@link #UNANIMOUS} takes the signal all the indicators agree on,
+ * {@link #MAJORITY} the one of more than half of them, otherwise the candlestick stays {@link SignalIndicator#NEUTRAL}. The rule of a run is
+ * {@code -Dindicator.signalRule=unanimous|majority}, unanimous by default.
+ */
+public enum SignalRule {
+  UNANIMOUS, MAJORITY;
+
+  private static final SignalRule DEFAULT = SignalRule.valueOf(System.getProperty("indicator.signalRule", UNANIMOUS.name()).toUpperCase(Locale.ROOT));
+
+  public static @NonNull SignalRule getDefault() {
+    return DEFAULT;
+  }
+
+  public @NonNull SignalIndicator combine(final @NonNull List<SignalIndicator> signals) {
+    if (signals.isEmpty()) {
+      return SignalIndicator.NEUTRAL;
+    }
+    return switch (this) {
+      case UNANIMOUS -> signals.stream().allMatch(signals.getFirst()::equals) ? signals.getFirst() : SignalIndicator.NEUTRAL;
+      case MAJORITY -> {
+        final int[] votes = new int[SignalIndicator.values().length];
+        signals.forEach(signal -> votes[signal.ordinal()]++);
+        yield votes[SignalIndicator.BULLISH.ordinal()] * 2 > signals.size() ? SignalIndicator.BULLISH
+            : votes[SignalIndicator.BEARISH.ordinal()] * 2 > signals.size() ? SignalIndicator.BEARISH : SignalIndicator.NEUTRAL;
+      }
+    };
+  }
+}
@@ -1,11 +1,10 @@
 package lu.forex.system.processor.enums;
 
 import java.math.BigDecimal;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lu.forex.system.processor.utils.PriceUtils;
 
 @Getter
-@AllArgsConstructor
 public enum Symbol {
   //@formatter:off
   EURUSD(BigDecimal.valueOf(-0.7), BigDecimal.valueOf(-1.0), BigDecimal.valueOf(0.00001)),
@@ -21,4 +20,16 @@ public enum Symbol {
   final BigDecimal swapLong;
   final BigDecimal swapShort;
   final BigDecimal pip;
+  final long fixedSwapLong;
+  final long fixedSwapShort;
+  final long fixedPip;
+
+  Symbol(final BigDecimal swapLong, final BigDecimal swapShort, final BigDecimal pip) {
+    this.swapLong = swapLong;
+    this.swapShort = swapShort;
+    this.pip = pip;
+    this.fixedSwapLong = PriceUtils.toFixedProfit(swapLong);
+    this.fixedSwapShort = PriceUtils.toFixedProfit(swapShort);
+    this.fixedPip = PriceUtils.toFixedPrice(pip);
+  }
 }
@@ -1,7 +1,11 @@
 package lu.forex.system.processor.models;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
@@ -21,6 +25,10 @@ public class Candlestick {
   private final AverageDirectionalIndex adx = new AverageDirectionalIndex();
   private final RelativeStrengthIndex rsi = new RelativeStrengthIndex();
   private SignalIndicator signalIndicator = SignalIndicator.NEUTRAL;
+  // values of the indicators without a model of their own, by name, only created when one is set
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private Map<String, Double> indicatorValues;
 
   public Candlestick(final @NonNull Tick tick, final @NonNull TimeFrame timeFrame) {
     this.timestamp = TimeFrameUtils.getCandlestickTimestamp(tick.getDateTime(), timeFrame);
@@ -28,6 +36,30 @@ public class Candlestick {
     this.body = new CandlestickBody(tick);
   }
 
+  Candlestick(final @NonNull LocalDateTime timestamp, final @NonNull LocalDateTime openTickTimestamp, final @NonNull CandlestickBody body) {
+    this.timestamp = timestamp;
+    this.openTickTimestamp = openTickTimestamp;
+    this.body = body;
+  }
+
+  /**
+   * @return The value, or null when the indicator didn't set it
+   */
+  public Double getIndicatorValue(final @NonNull String name) {
+    return Objects.isNull(this.indicatorValues) ? null : this.indicatorValues.get(name);
+  }
+
+  public @NonNull Set<String> getIndicatorNames() {
+    return Objects.isNull(this.indicatorValues) ? Set.of() : this.indicatorValues.keySet();
+  }
+
+  public void setIndicatorValue(final @NonNull String name, final double value) {
+    if (Objects.isNull(this.indicatorValues)) {
+      this.indicatorValues = new LinkedHashMap<>(4);
+    }
+    this.indicatorValues.put(name, value);
+  }
+
   @Override
   public boolean equals(final Object o) {
     if (this == o) {
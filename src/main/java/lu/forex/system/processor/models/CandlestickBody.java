@@ -7,41 +7,68 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.ToString;
+import lu.forex.system.processor.utils.PriceUtils;
 
 @Getter
 @EqualsAndHashCode
 @ToString
 public class CandlestickBody {
 
-  private final BigDecimal open;
+  private final long fixedOpen;
   @Setter(AccessLevel.PRIVATE)
-  private BigDecimal high;
+  private long fixedHigh;
   @Setter(AccessLevel.PRIVATE)
-  private BigDecimal low;
+  private long fixedLow;
   @Setter(AccessLevel.PRIVATE)
-  private BigDecimal close;
+  private long fixedClose;
 
   public CandlestickBody(final @NonNull Tick tick) {
-    final BigDecimal price = getPrice(tick);
-    this.close = price;
-    this.open = price;
-    this.low = price;
-    this.high = price;
+    final long price = getPrice(tick);
+    this.fixedClose = price;
+    this.fixedOpen = price;
+    this.fixedLow = price;
+    this.fixedHigh = price;
   }
 
-  @NonNull
-  private static BigDecimal getPrice(final @NonNull Tick tick) {
-    return tick.getBid();
+  CandlestickBody(final long fixedOpen, final long fixedHigh, final long fixedLow, final long fixedClose) {
+    this.fixedOpen = fixedOpen;
+    this.fixedHigh = fixedHigh;
+    this.fixedLow = fixedLow;
+    this.fixedClose = fixedClose;
+  }
+
+  private static long getPrice(final @NonNull Tick tick) {
+    return tick.getFixedBid();
   }
 
   public void updatePrice(final @NonNull Tick tick) {
-    final BigDecimal price = getPrice(tick);
-    this.setClose(price);
-    if (price.compareTo(this.getLow()) < 0) {
-      this.setLow(price);
-    } else if (price.compareTo(this.getHigh()) > 0) {
-      this.setHigh(price);
+    final long price = getPrice(tick);
+    this.setFixedClose(price);
+    if (price < this.getFixedLow()) {
+      this.setFixedLow(price);
+    } else if (price > this.getFixedHigh()) {
+      this.setFixedHigh(price);
     }
   }
 
-}
\ No newline at end of file
+  @NonNull
+  public BigDecimal getOpen() {
+    return PriceUtils.toPrice(this.getFixedOpen());
+  }
+
+  @NonNull
+  public BigDecimal getHigh() {
+    return PriceUtils.toPrice(this.getFixedHigh());
+  }
+
+  @NonNull
+  public BigDecimal getLow() {
+    return PriceUtils.toPrice(this.getFixedLow());
+  }
+
+  @NonNull
+  public BigDecimal getClose() {
+    return PriceUtils.toPrice(this.getFixedClose());
+  }
+
+}
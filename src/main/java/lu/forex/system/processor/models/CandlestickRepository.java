@@ -0,0 +1,155 @@
+package lu.forex.system.processor.models;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import lombok.NonNull;
+import lu.forex.system.processor.enums.SignalIndicator;
+import lu.forex.system.processor.utils.DataUtils;
+import lu.forex.system.processor.utils.DateTimeUtils;
+
+/**
+ * Fixed-capacity ring buffer of the last candlesticks of a series, newest first. When full, adding a candlestick drops the oldest one.
+ */
+public class CandlestickRepository extends AbstractCollection<Candlestick> {
+
+  private final Candlestick[] candlesticks;
+  private int firstIndex;
+  private int size;
+
+  public CandlestickRepository(final int capacity) {
+    this.candlesticks = new Candlestick[capacity];
+  }
+
+  public void addFirst(final @NonNull Candlestick candlestick) {
+    this.firstIndex = (this.firstIndex + this.candlesticks.length - 1) % this.candlesticks.length;
+    this.candlesticks[this.firstIndex] = candlestick;
+    this.size = Math.min(this.size + 1, this.candlesticks.length);
+  }
+
+  /**
+   * @param back How many candlesticks back, 0 is the newest one
+   * @return The candlestick, or null when the repository doesn't have it
+   */
+  public Candlestick get(final int back) {
+    return back < this.size ? this.candlesticks[(this.firstIndex + back) % this.candlesticks.length] : null;
+  }
+
+  public Candlestick getFirst() {
+    return this.get(0);
+  }
+
+  public int getCapacity() {
+    return this.candlesticks.length;
+  }
+
+  /**
+   * Write the candlesticks, oldest first, with the exact values of their indicators and the values set by name.
+   */
+  public void writeTo(final @NonNull DataOutput dataOutput) throws IOException {
+    dataOutput.writeInt(this.getCapacity());
+    dataOutput.writeInt(this.size());
+    for (int back = this.size() - 1; back >= 0; back--) {
+      writeCandlestick(this.get(back), dataOutput);
+    }
+  }
+
+  public static @NonNull CandlestickRepository readFrom(final @NonNull DataInput dataInput) throws IOException {
+    final CandlestickRepository candlestickRepository = new CandlestickRepository(dataInput.readInt());
+    final int size = dataInput.readInt();
+    for (int i = 0; i < size; i++) {
+      candlestickRepository.addFirst(readCandlestick(dataInput));
+    }
+    return candlestickRepository;
+  }
+
+  private static void writeCandlestick(final @NonNull Candlestick candlestick, final @NonNull DataOutput dataOutput) throws IOException {
+    dataOutput.writeLong(DateTimeUtils.toEpochMilli(candlestick.getTimestamp()));
+    dataOutput.writeLong(DateTimeUtils.toEpochMilli(candlestick.getOpenTickTimestamp()));
+    final CandlestickBody body = candlestick.getBody();
+    dataOutput.writeLong(body.getFixedOpen());
+    dataOutput.writeLong(body.getFixedHigh());
+    dataOutput.writeLong(body.getFixedLow());
+    dataOutput.writeLong(body.getFixedClose());
+
+    final AverageDirectionalIndex adx = candlestick.getAdx();
+    for (final BigDecimal value : new BigDecimal[]{adx.getKeyAdx(), adx.getKeyPDiP(), adx.getKeyNDiP(), adx.getKeyTr1(), adx.getKeyPDm1(), adx.getKeyNDm1(), adx.getKeyDx()}) {
+      DataUtils.writeDecimal(value, dataOutput);
+    }
+    dataOutput.writeByte(adx.getSignal().ordinal());
+
+    final RelativeStrengthIndex rsi = candlestick.getRsi();
+    for (final BigDecimal value : new BigDecimal[]{rsi.getKeyGain(), rsi.getKeyLoss(), rsi.getKeyRsi(), rsi.getKeyAverageGain(), rsi.getKeyAverageLoss()}) {
+      DataUtils.writeDecimal(value, dataOutput);
+    }
+    dataOutput.writeByte(rsi.getSignal().ordinal());
+    dataOutput.writeByte(candlestick.getSignalIndicator().ordinal());
+
+    dataOutput.writeInt(candlestick.getIndicatorNames().size());
+    for (final String name : candlestick.getIndicatorNames()) {
+      dataOutput.writeUTF(name);
+      dataOutput.writeDouble(candlestick.getIndicatorValue(name));
+    }
+  }
+
+  private static @NonNull Candlestick readCandlestick(final @NonNull DataInput dataInput) throws IOException {
+    final long timestamp = dataInput.readLong();
+    final long openTickTimestamp = dataInput.readLong();
+    final CandlestickBody body = new CandlestickBody(dataInput.readLong(), dataInput.readLong(), dataInput.readLong(), dataInput.readLong());
+    final Candlestick candlestick = new Candlestick(DateTimeUtils.fromEpochMilli(timestamp), DateTimeUtils.fromEpochMilli(openTickTimestamp), body);
+
+    final AverageDirectionalIndex adx = candlestick.getAdx();
+    adx.setKeyAdx(DataUtils.readDecimal(dataInput));
+    adx.setKeyPDiP(DataUtils.readDecimal(dataInput));
+    adx.setKeyNDiP(DataUtils.readDecimal(dataInput));
+    adx.setKeyTr1(DataUtils.readDecimal(dataInput));
+    adx.setKeyPDm1(DataUtils.readDecimal(dataInput));
+    adx.setKeyNDm1(DataUtils.readDecimal(dataInput));
+    adx.setKeyDx(DataUtils.readDecimal(dataInput));
+    adx.setSignal(SignalIndicator.values()[dataInput.readByte()]);
+
+    final RelativeStrengthIndex rsi = candlestick.getRsi();
+    rsi.setKeyGain(DataUtils.readDecimal(dataInput));
+    rsi.setKeyLoss(DataUtils.readDecimal(dataInput));
+    rsi.setKeyRsi(DataUtils.readDecimal(dataInput));
+    rsi.setKeyAverageGain(DataUtils.readDecimal(dataInput));
+    rsi.setKeyAverageLoss(DataUtils.readDecimal(dataInput));
+    rsi.setSignal(SignalIndicator.values()[dataInput.readByte()]);
+    candlestick.setSignalIndicator(SignalIndicator.values()[dataInput.readByte()]);
+
+    final int indicatorSize = dataInput.readInt();
+    for (int i = 0; i < indicatorSize; i++) {
+      candlestick.setIndicatorValue(dataInput.readUTF(), dataInput.readDouble());
+    }
+    return candlestick;
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public @NonNull Iterator<Candlestick> iterator() {
+    return new Iterator<>() {
+      private int back;
+
+      @Override
+      public boolean hasNext() {
+        return this.back < CandlestickRepository.this.size;
+      }
+
+      @Override
+      public Candlestick next() {
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return CandlestickRepository.this.get(this.back++);
+      }
+    };
+  }
+}
@@ -0,0 +1,391 @@
+package lu.forex.system.processor.models;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import lombok.Getter;
+import lombok.NonNull;
+import lu.forex.system.processor.enums.SignalIndicator;
+import lu.forex.system.processor.utils.DateTimeUtils;
+
+/**
+ * Columnar store of candlesticks, one primitive column per field, so a full history costs about 150 bytes per candlestick instead of the objects and the
+ * {@link BigDecimal} of every indicator. The timestamps are epoch milliseconds, the prices fixed prices and the indicator values doubles, with
+ * {@link Double#NaN} when the value is not calculated. The values set by name on the candlesticks get a column by name when first added. The columns are on
+ * the heap or, optionally, in direct memory.
+ * <p>
+ * The candlesticks are expected in the order they are closed, so the timestamp column is sorted and {@link #indexOf(LocalDateTime)} searches it.
+ * <p>
+ * As a {@link java.util.List} it is append-only and every {@link #get(int)} rebuilds a detached {@link Candlestick}, so the existing services and reports
+ * keep working on it. Loops over many candlesticks should prefer the column getters.
+ */
+public final class CandlestickSeries extends AbstractList<Candlestick> implements RandomAccess {
+
+  private static final int INIT_CAPACITY = 1 << 10;
+
+  private static final int TIMESTAMP = 0;
+  private static final int OPEN_TICK_TIMESTAMP = 1;
+  private static final int OPEN = 2;
+  private static final int HIGH = 3;
+  private static final int LOW = 4;
+  private static final int CLOSE = 5;
+  private static final int LONG_COLUMNS = 6;
+
+  private static final int ADX = 0;
+  private static final int ADX_P_DI_P = 1;
+  private static final int ADX_N_DI_P = 2;
+  private static final int ADX_TR1 = 3;
+  private static final int ADX_P_DM1 = 4;
+  private static final int ADX_N_DM1 = 5;
+  private static final int ADX_DX = 6;
+  private static final int RSI_GAIN = 7;
+  private static final int RSI_LOSS = 8;
+  private static final int RSI = 9;
+  private static final int RSI_AVERAGE_GAIN = 10;
+  private static final int RSI_AVERAGE_LOSS = 11;
+  private static final int DOUBLE_COLUMNS = 12;
+
+  private static final int ADX_SIGNAL = 0;
+  private static final int RSI_SIGNAL = 1;
+  private static final int SIGNAL = 2;
+  private static final int BYTE_COLUMNS = 3;
+
+  private static final SignalIndicator[] SIGNAL_INDICATORS = SignalIndicator.values();
+
+  @Getter
+  private final boolean offHeap;
+  private final LongBuffer[] longColumns = new LongBuffer[LONG_COLUMNS];
+  private final DoubleBuffer[] doubleColumns = new DoubleBuffer[DOUBLE_COLUMNS];
+  private final ByteBuffer[] byteColumns = new ByteBuffer[BYTE_COLUMNS];
+  private final Map<String, DoubleBuffer> indicatorColumns = new LinkedHashMap<>();
+  private int capacity;
+  private int size;
+
+  public CandlestickSeries() {
+    this(false);
+  }
+
+  /**
+   * @param offHeap True to keep the columns in direct memory, out of the garbage collected heap
+   */
+  public CandlestickSeries(final boolean offHeap) {
+    this.offHeap = offHeap;
+    this.resize(INIT_CAPACITY);
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public boolean add(final @NonNull Candlestick candlestick) {
+    final int index = this.nextIndex();
+    final CandlestickBody body = candlestick.getBody();
+    this.longColumns[TIMESTAMP].put(index, DateTimeUtils.toEpochMilli(candlestick.getTimestamp()));
+    this.longColumns[OPEN_TICK_TIMESTAMP].put(index, DateTimeUtils.toEpochMilli(candlestick.getOpenTickTimestamp()));
+    this.longColumns[OPEN].put(index, body.getFixedOpen());
+    this.longColumns[HIGH].put(index, body.getFixedHigh());
+    this.longColumns[LOW].put(index, body.getFixedLow());
+    this.longColumns[CLOSE].put(index, body.getFixedClose());
+
+    final AverageDirectionalIndex adx = candlestick.getAdx();
+    this.putDouble(ADX, index, adx.getKeyAdx());
+    this.putDouble(ADX_P_DI_P, index, adx.getKeyPDiP());
+    this.putDouble(ADX_N_DI_P, index, adx.getKeyNDiP());
+    this.putDouble(ADX_TR1, index, adx.getKeyTr1());
+    this.putDouble(ADX_P_DM1, index, adx.getKeyPDm1());
+    this.putDouble(ADX_N_DM1, index, adx.getKeyNDm1());
+    this.putDouble(ADX_DX, index, adx.getKeyDx());
+    this.byteColumns[ADX_SIGNAL].put(index, (byte) adx.getSignal().ordinal());
+
+    final RelativeStrengthIndex rsi = candlestick.getRsi();
+    this.putDouble(RSI_GAIN, index, rsi.getKeyGain());
+    this.putDouble(RSI_LOSS, index, rsi.getKeyLoss());
+    this.putDouble(RSI, index, rsi.getKeyRsi());
+    this.putDouble(RSI_AVERAGE_GAIN, index, rsi.getKeyAverageGain());
+    this.putDouble(RSI_AVERAGE_LOSS, index, rsi.getKeyAverageLoss());
+    this.byteColumns[RSI_SIGNAL].put(index, (byte) rsi.getSignal().ordinal());
+
+    this.byteColumns[SIGNAL].put(index, (byte) candlestick.getSignalIndicator().ordinal());
+
+    candlestick.getIndicatorNames().forEach(this::getIndicatorColumn);
+    this.indicatorColumns.forEach((name, column) -> {
+      final Double value = candlestick.getIndicatorValue(name);
+      column.put(index, Objects.isNull(value) ? Double.NaN : value);
+    });
+    this.size++;
+    this.modCount++;
+    return true;
+  }
+
+  /**
+   * Append a copy of one row of another series, without building the candlestick.
+   */
+  public void add(final @NonNull CandlestickSeries series, final int index) {
+    Objects.checkIndex(index, series.size());
+    final int newIndex = this.nextIndex();
+    for (int column = 0; column < LONG_COLUMNS; column++) {
+      this.longColumns[column].put(newIndex, series.longColumns[column].get(index));
+    }
+    for (int column = 0; column < DOUBLE_COLUMNS; column++) {
+      this.doubleColumns[column].put(newIndex, series.doubleColumns[column].get(index));
+    }
+    for (int column = 0; column < BYTE_COLUMNS; column++) {
+      this.byteColumns[column].put(newIndex, series.byteColumns[column].get(index));
+    }
+    series.indicatorColumns.keySet().forEach(this::getIndicatorColumn);
+    this.indicatorColumns.forEach((name, column) -> {
+      final DoubleBuffer seriesColumn = series.indicatorColumns.get(name);
+      column.put(newIndex, Objects.isNull(seriesColumn) ? Double.NaN : seriesColumn.get(index));
+    });
+    this.size++;
+    this.modCount++;
+  }
+
+  @Override
+  public @NonNull Candlestick get(final int index) {
+    Objects.checkIndex(index, this.size);
+    final CandlestickBody body = new CandlestickBody(this.getFixedOpen(index), this.getFixedHigh(index), this.getFixedLow(index), this.getFixedClose(index));
+    final Candlestick candlestick = new Candlestick(this.getTimestamp(index), this.getOpenTickTimestamp(index), body);
+
+    final AverageDirectionalIndex adx = candlestick.getAdx();
+    adx.setKeyAdx(this.getDecimal(ADX, index));
+    adx.setKeyPDiP(this.getDecimal(ADX_P_DI_P, index));
+    adx.setKeyNDiP(this.getDecimal(ADX_N_DI_P, index));
+    adx.setKeyTr1(this.getDecimal(ADX_TR1, index));
+    adx.setKeyPDm1(this.getDecimal(ADX_P_DM1, index));
+    adx.setKeyNDm1(this.getDecimal(ADX_N_DM1, index));
+    adx.setKeyDx(this.getDecimal(ADX_DX, index));
+    adx.setSignal(this.getSignal(ADX_SIGNAL, index));
+
+    final RelativeStrengthIndex rsi = candlestick.getRsi();
+    rsi.setKeyGain(this.getDecimal(RSI_GAIN, index));
+    rsi.setKeyLoss(this.getDecimal(RSI_LOSS, index));
+    rsi.setKeyRsi(this.getDecimal(RSI, index));
+    rsi.setKeyAverageGain(this.getDecimal(RSI_AVERAGE_GAIN, index));
+    rsi.setKeyAverageLoss(this.getDecimal(RSI_AVERAGE_LOSS, index));
+    rsi.setSignal(this.getSignal(RSI_SIGNAL, index));
+
+    candlestick.setSignalIndicator(this.getSignalIndicator(index));
+    this.indicatorColumns.forEach((name, column) -> {
+      if (!Double.isNaN(column.get(index))) {
+        candlestick.setIndicatorValue(name, column.get(index));
+      }
+    });
+    return candlestick;
+  }
+
+  /**
+   * Write the columns, as they are, to read them back with {@link #readFrom(DataInput, boolean)}.
+   */
+  public void writeTo(final @NonNull DataOutput dataOutput) throws IOException {
+    dataOutput.writeInt(this.size);
+    for (final LongBuffer column : this.longColumns) {
+      for (int i = 0; i < this.size; i++) {
+        dataOutput.writeLong(column.get(i));
+      }
+    }
+    for (final DoubleBuffer column : this.doubleColumns) {
+      for (int i = 0; i < this.size; i++) {
+        dataOutput.writeDouble(column.get(i));
+      }
+    }
+    for (final ByteBuffer column : this.byteColumns) {
+      for (int i = 0; i < this.size; i++) {
+        dataOutput.writeByte(column.get(i));
+      }
+    }
+    dataOutput.writeInt(this.indicatorColumns.size());
+    for (final Map.Entry<String, DoubleBuffer> indicatorColumn : this.indicatorColumns.entrySet()) {
+      dataOutput.writeUTF(indicatorColumn.getKey());
+      for (int i = 0; i < this.size; i++) {
+        dataOutput.writeDouble(indicatorColumn.getValue().get(i));
+      }
+    }
+  }
+
+  public static @NonNull CandlestickSeries readFrom(final @NonNull DataInput dataInput, final boolean offHeap) throws IOException {
+    final CandlestickSeries candlestickSeries = new CandlestickSeries(offHeap);
+    final int size = dataInput.readInt();
+    candlestickSeries.resize(Math.max(INIT_CAPACITY, Integer.highestOneBit(Math.max(size, 1) * 2 - 1)));
+    for (final LongBuffer column : candlestickSeries.longColumns) {
+      for (int i = 0; i < size; i++) {
+        column.put(i, dataInput.readLong());
+      }
+    }
+    for (final DoubleBuffer column : candlestickSeries.doubleColumns) {
+      for (int i = 0; i < size; i++) {
+        column.put(i, dataInput.readDouble());
+      }
+    }
+    for (final ByteBuffer column : candlestickSeries.byteColumns) {
+      for (int i = 0; i < size; i++) {
+        column.put(i, dataInput.readByte());
+      }
+    }
+    final int indicatorSize = dataInput.readInt();
+    for (int indicator = 0; indicator < indicatorSize; indicator++) {
+      final DoubleBuffer column = candlestickSeries.getIndicatorColumn(dataInput.readUTF());
+      for (int i = 0; i < size; i++) {
+        column.put(i, dataInput.readDouble());
+      }
+    }
+    candlestickSeries.size = size;
+    return candlestickSeries;
+  }
+
+  public long getEpochMilli(final int index) {
+    return this.longColumns[TIMESTAMP].get(Objects.checkIndex(index, this.size));
+  }
+
+  public @NonNull LocalDateTime getTimestamp(final int index) {
+    return DateTimeUtils.fromEpochMilli(this.getEpochMilli(index));
+  }
+
+  public @NonNull LocalDateTime getOpenTickTimestamp(final int index) {
+    return DateTimeUtils.fromEpochMilli(this.longColumns[OPEN_TICK_TIMESTAMP].get(Objects.checkIndex(index, this.size)));
+  }
+
+  public long getFixedOpen(final int index) {
+    return this.longColumns[OPEN].get(Objects.checkIndex(index, this.size));
+  }
+
+  public long getFixedHigh(final int index) {
+    return this.longColumns[HIGH].get(Objects.checkIndex(index, this.size));
+  }
+
+  public long getFixedLow(final int index) {
+    return this.longColumns[LOW].get(Objects.checkIndex(index, this.size));
+  }
+
+  public long getFixedClose(final int index) {
+    return this.longColumns[CLOSE].get(Objects.checkIndex(index, this.size));
+  }
+
+  public double getAdx(final int index) {
+    return this.doubleColumns[ADX].get(Objects.checkIndex(index, this.size));
+  }
+
+  public double getRsi(final int index) {
+    return this.doubleColumns[RSI].get(Objects.checkIndex(index, this.size));
+  }
+
+  public @NonNull SignalIndicator getSignalIndicator(final int index) {
+    return this.getSignal(SIGNAL, index);
+  }
+
+  /**
+   * @return The names of the values set on the candlesticks, in the order they were first added
+   */
+  public @NonNull List<String> getIndicatorNames() {
+    return List.copyOf(this.indicatorColumns.keySet());
+  }
+
+  /**
+   * @return The value, {@link Double#NaN} when the candlestick doesn't have it
+   */
+  public double getIndicatorValue(final @NonNull String name, final int index) {
+    Objects.checkIndex(index, this.size);
+    final DoubleBuffer column = this.indicatorColumns.get(name);
+    return Objects.isNull(column) ? Double.NaN : column.get(index);
+  }
+
+  /**
+   * @return The index of the first candlestick with a timestamp at or after the timestamp, the size when there is none
+   */
+  public int indexOf(final @NonNull LocalDateTime timestamp) {
+    final long epochMilli = DateTimeUtils.toEpochMilli(timestamp);
+    final LongBuffer column = this.longColumns[TIMESTAMP];
+    int low = 0;
+    int high = this.size;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (column.get(middle) < epochMilli) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private @NonNull SignalIndicator getSignal(final int column, final int index) {
+    return SIGNAL_INDICATORS[this.byteColumns[column].get(Objects.checkIndex(index, this.size))];
+  }
+
+  private BigDecimal getDecimal(final int column, final int index) {
+    final double value = this.doubleColumns[column].get(index);
+    return Double.isNaN(value) ? null : BigDecimal.valueOf(value);
+  }
+
+  private void putDouble(final int column, final int index, final BigDecimal value) {
+    this.doubleColumns[column].put(index, Objects.isNull(value) ? Double.NaN : value.doubleValue());
+  }
+
+  /**
+   * @return The column of the name, created with {@link Double#NaN} for the candlesticks already added when missing
+   */
+  private @NonNull DoubleBuffer getIndicatorColumn(final @NonNull String name) {
+    return this.indicatorColumns.computeIfAbsent(name, key -> {
+      final DoubleBuffer column = this.allocate(this.capacity, Double.BYTES).asDoubleBuffer();
+      for (int i = 0; i < this.size; i++) {
+        column.put(i, Double.NaN);
+      }
+      return column;
+    });
+  }
+
+  private int nextIndex() {
+    if (this.size == this.capacity) {
+      if (this.capacity > Integer.MAX_VALUE / Long.BYTES / 2) {
+        throw new IllegalStateException("Candlestick series is full");
+      }
+      this.resize(this.capacity * 2);
+    }
+    return this.size;
+  }
+
+  private void resize(final int newCapacity) {
+    for (int column = 0; column < LONG_COLUMNS; column++) {
+      final LongBuffer newColumn = this.allocate(newCapacity, Long.BYTES).asLongBuffer();
+      if (Objects.nonNull(this.longColumns[column])) {
+        newColumn.put(0, this.longColumns[column], 0, this.size);
+      }
+      this.longColumns[column] = newColumn;
+    }
+    for (int column = 0; column < DOUBLE_COLUMNS; column++) {
+      final DoubleBuffer newColumn = this.allocate(newCapacity, Double.BYTES).asDoubleBuffer();
+      if (Objects.nonNull(this.doubleColumns[column])) {
+        newColumn.put(0, this.doubleColumns[column], 0, this.size);
+      }
+      this.doubleColumns[column] = newColumn;
+    }
+    for (int column = 0; column < BYTE_COLUMNS; column++) {
+      final ByteBuffer newColumn = this.allocate(newCapacity, Byte.BYTES);
+      if (Objects.nonNull(this.byteColumns[column])) {
+        newColumn.put(0, this.byteColumns[column], 0, this.size);
+      }
+      this.byteColumns[column] = newColumn;
+    }
+    this.indicatorColumns.replaceAll((name, column) -> this.allocate(newCapacity, Double.BYTES).asDoubleBuffer().put(0, column, 0, this.size));
+    this.capacity = newCapacity;
+  }
+
+  private @NonNull ByteBuffer allocate(final int capacity, final int bytes) {
+    final ByteBuffer buffer = this.isOffHeap() ? ByteBuffer.allocateDirect(capacity * bytes) : ByteBuffer.allocate(capacity * bytes);
+    return buffer.order(ByteOrder.nativeOrder());
+  }
+}
@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
+import lu.forex.system.processor.utils.PriceUtils;
 
 @Getter
 @ToString
@@ -14,12 +15,30 @@ import lombok.ToString;
 public class Tick {
 
   private final LocalDateTime dateTime;
-  private final BigDecimal bid;
-  private final BigDecimal ask;
+  private final long fixedBid;
+  private final long fixedAsk;
+
+  public Tick(final LocalDateTime dateTime, final @NonNull BigDecimal bid, final @NonNull BigDecimal ask) {
+    this(dateTime, PriceUtils.toFixedPrice(bid), PriceUtils.toFixedPrice(ask));
+  }
+
+  @NonNull
+  public BigDecimal getBid() {
+    return PriceUtils.toPrice(this.getFixedBid());
+  }
+
+  @NonNull
+  public BigDecimal getAsk() {
+    return PriceUtils.toPrice(this.getFixedAsk());
+  }
+
+  public long getFixedSpread() {
+    return this.getFixedBid() - this.getFixedAsk();
+  }
 
   @NonNull
   public BigDecimal getSpread() {
-    return this.getBid().subtract(this.getAsk());
+    return PriceUtils.toPrice(this.getFixedSpread());
   }
 
   @Override
@@ -12,8 +12,8 @@ import lombok.ToString;
 @AllArgsConstructor
 public class Trade {
 
-  private final int stopLoss;
-  private final int takeProfit;
+  private final BigDecimal stopLoss;
+  private final BigDecimal takeProfit;
   private final DayOfWeek slotWeek;
   private final int slotStart;
   private final boolean flip = true;
@@ -33,11 +33,11 @@ public class Trade {
       return false;
     }
     final Trade trade = (Trade) o;
-    return stopLoss == trade.stopLoss && takeProfit == trade.takeProfit && slotStart == trade.slotStart && slotWeek == trade.slotWeek && flip == trade.flip;
+    return stopLoss.compareTo(trade.stopLoss) == 0 && takeProfit.compareTo(trade.takeProfit) == 0 && slotStart == trade.slotStart && slotWeek == trade.slotWeek && flip == trade.flip;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(stopLoss, takeProfit, slotWeek, slotStart, flip);
+    return Objects.hash(stopLoss.stripTrailingZeros(), takeProfit.stripTrailingZeros(), slotWeek, slotStart, flip);
   }
 }
@@ -1,68 +1,163 @@
 package lu.forex.system.processor.services;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.Objects;
-import java.util.stream.IntStream;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
+import lu.forex.system.processor.enums.NumericMode;
 import lu.forex.system.processor.enums.SignalIndicator;
 import lu.forex.system.processor.models.AverageDirectionalIndex;
 import lu.forex.system.processor.models.Candlestick;
+import lu.forex.system.processor.models.CandlestickBody;
+import lu.forex.system.processor.models.CandlestickRepository;
+import lu.forex.system.processor.utils.DataUtils;
 import lu.forex.system.processor.utils.MathUtils;
+import lu.forex.system.processor.utils.PriceUtils;
 
 @UtilityClass
 public class AdxService {
 
-  private static final int PERIOD = 14;
-  private static final BigDecimal TENDENCY_LINE = BigDecimal.valueOf(40);
+  static final int PERIOD = 14;
+  static final BigDecimal TENDENCY_LINE = BigDecimal.valueOf(40);
   private static final BigDecimal DECIMAL = BigDecimal.valueOf(100);
+  private static final double TENDENCY_LINE_VALUE = TENDENCY_LINE.doubleValue();
+  static final String NAME = "ADX";
+  private static final Indicator<AdxState> INDICATOR = new Indicator<>() {
 
-  public static void calculate(final @NonNull Candlestick @NonNull [] candlesticks) {
-    final AverageDirectionalIndex[] technicalIndicators = IntStream.range(0, candlesticks.length < PERIOD ? 1 : PERIOD).mapToObj(i -> candlesticks[i].getAdx())
-        .toArray(AverageDirectionalIndex[]::new);
+    @Override
+    public @NonNull String getName() {
+      return NAME;
+    }
+
+    @Override
+    public @NonNull String getKey() {
+      return NAME + "(" + PERIOD + "," + TENDENCY_LINE.toPlainString() + ")";
+    }
+
+    @Override
+    public @NonNull AdxState getInitState(final @NonNull NumericMode numericMode) {
+      return AdxService.getInitState(numericMode);
+    }
+
+    @Override
+    public @NonNull SignalIndicator onCandleClose(final @NonNull AdxState state, final @NonNull CandlestickRepository repository) {
+      calculate(state, repository.get(0), repository.get(1));
+      return repository.getFirst().getAdx().getSignal();
+    }
+
+    @Override
+    public void writeState(final @NonNull AdxState state, final @NonNull DataOutput dataOutput) throws IOException {
+      AdxService.writeState(state, dataOutput);
+    }
+
+    @Override
+    public @NonNull AdxState readState(final @NonNull DataInput dataInput) throws IOException {
+      return AdxService.readState(dataInput);
+    }
+  };
+
+  public static @NonNull Indicator<AdxState> getIndicator() {
+    return INDICATOR;
+  }
+
+  public static @NonNull AdxState getInitState() {
+    return getInitState(NumericMode.getDefault());
+  }
+
+  public static @NonNull AdxState getInitState(final @NonNull NumericMode numericMode) {
+    return new AdxState(numericMode);
+  }
+
+  public static void writeState(final @NonNull AdxState adxState, final @NonNull DataOutput dataOutput) throws IOException {
+    dataOutput.writeUTF(adxState.numericMode.name());
+    for (int i = 0; i < PERIOD; i++) {
+      dataOutput.writeLong(adxState.tr1[i]);
+      dataOutput.writeLong(adxState.pDm1[i]);
+      dataOutput.writeLong(adxState.nDm1[i]);
+      DataUtils.writeDecimal(adxState.dx[i], dataOutput);
+      dataOutput.writeDouble(adxState.fastDx[i]);
+    }
+    dataOutput.writeInt(adxState.dmSize);
+    dataOutput.writeInt(adxState.dmIndex);
+    dataOutput.writeLong(adxState.trP);
+    dataOutput.writeLong(adxState.pDmP);
+    dataOutput.writeLong(adxState.nDmP);
+    dataOutput.writeInt(adxState.dxSize);
+    dataOutput.writeInt(adxState.dxIndex);
+    DataUtils.writeDecimal(adxState.dxSum, dataOutput);
+    dataOutput.writeDouble(adxState.fastDxSum);
+  }
+
+  public static @NonNull AdxState readState(final @NonNull DataInput dataInput) throws IOException {
+    final AdxState adxState = new AdxState(NumericMode.valueOf(dataInput.readUTF()));
+    for (int i = 0; i < PERIOD; i++) {
+      adxState.tr1[i] = dataInput.readLong();
+      adxState.pDm1[i] = dataInput.readLong();
+      adxState.nDm1[i] = dataInput.readLong();
+      adxState.dx[i] = DataUtils.readDecimal(dataInput);
+      adxState.fastDx[i] = dataInput.readDouble();
+    }
+    adxState.dmSize = dataInput.readInt();
+    adxState.dmIndex = dataInput.readInt();
+    adxState.trP = dataInput.readLong();
+    adxState.pDmP = dataInput.readLong();
+    adxState.nDmP = dataInput.readLong();
+    adxState.dxSize = dataInput.readInt();
+    adxState.dxIndex = dataInput.readInt();
+    adxState.dxSum = DataUtils.readDecimal(dataInput);
+    adxState.fastDxSum = dataInput.readDouble();
+    return adxState;
+  }
+
+  /**
+   * Calculate the ADX of the current candlestick, updating the rolling sums of the last {@value #PERIOD} candlesticks kept in the state, with the
+   * {@link NumericMode} of the state.
+   *
+   * @param lastCandlestick The candlestick before the current one, or null when the current candlestick is the first one
+   */
+  public static void calculate(final @NonNull AdxState adxState, final @NonNull Candlestick currentCandlestick, final Candlestick lastCandlestick) {
+    if (Objects.nonNull(lastCandlestick)) {
+      final AverageDirectionalIndex technicalIndicator = currentCandlestick.getAdx();
+      final CandlestickBody currentBody = currentCandlestick.getBody();
+      final CandlestickBody lastBody = lastCandlestick.getBody();
 
-    if (candlesticks.length >= 2) {
       // get TR1
-      final BigDecimal trOne = MathUtils.getMax(candlesticks[0].getBody().getHigh().subtract(candlesticks[0].getBody().getLow()),
-          candlesticks[0].getBody().getHigh().subtract(candlesticks[0].getBody().getClose()), candlesticks[0].getBody().getLow().subtract(candlesticks[1].getBody().getClose()).abs());
-      technicalIndicators[0].setKeyTr1(trOne);
+      final long trOne = Math.max(Math.max(currentBody.getFixedHigh() - currentBody.getFixedLow(), currentBody.getFixedHigh() - currentBody.getFixedClose()),
+          Math.abs(currentBody.getFixedLow() - lastBody.getFixedClose()));
+      technicalIndicator.setKeyTr1(PriceUtils.toPrice(trOne));
 
       // get +DM1
-      final BigDecimal pDmOne =
-          candlesticks[0].getBody().getHigh().subtract(candlesticks[1].getBody().getHigh()).compareTo(candlesticks[1].getBody().getLow().subtract(candlesticks[0].getBody().getLow())) > 0
-              ? MathUtils.getMax(candlesticks[0].getBody().getHigh().subtract(candlesticks[1].getBody().getHigh()), BigDecimal.ZERO) : BigDecimal.ZERO;
-      technicalIndicators[0].setKeyPDm1(pDmOne);
+      final long pDmOne = currentBody.getFixedHigh() - lastBody.getFixedHigh() > lastBody.getFixedLow() - currentBody.getFixedLow() ? Math.max(
+          currentBody.getFixedHigh() - lastBody.getFixedHigh(), 0L) : 0L;
+      technicalIndicator.setKeyPDm1(PriceUtils.toPrice(pDmOne));
 
       // get -DM1
-      final BigDecimal nDmOne =
-          candlesticks[1].getBody().getLow().subtract(candlesticks[0].getBody().getLow()).compareTo(candlesticks[0].getBody().getHigh().subtract(candlesticks[1].getBody().getHigh())) > 0
-              ? MathUtils.getMax(candlesticks[1].getBody().getLow().subtract(candlesticks[0].getBody().getLow()), BigDecimal.ZERO) : BigDecimal.ZERO;
-      technicalIndicators[0].setKeyNDm1(nDmOne);
-
-      if (technicalIndicators.length == PERIOD && IntStream.range(0, PERIOD)
-          .noneMatch(i -> Objects.isNull(technicalIndicators[i].getKeyTr1()) || Objects.isNull(technicalIndicators[i].getKeyPDm1()) || Objects.isNull(technicalIndicators[i].getKeyNDm1()))) {
-        // get TR(P)
-        final BigDecimal[] trPArray = new BigDecimal[PERIOD];
-        IntStream.range(0, PERIOD).parallel().forEach(i -> trPArray[i] = technicalIndicators[i].getKeyTr1());
-        final BigDecimal trP = MathUtils.getSum(trPArray);
-
-        // get +DM(P)
-        final BigDecimal[] pDmPArray = new BigDecimal[PERIOD];
-        IntStream.range(0, PERIOD).parallel().forEach(i -> pDmPArray[i] = technicalIndicators[i].getKeyPDm1());
-        final BigDecimal pDmP = MathUtils.getSum(pDmPArray);
-
-        // get -DM(P)
-        final BigDecimal[] nDmPArray = new BigDecimal[PERIOD];
-        IntStream.range(0, PERIOD).parallel().forEach(i -> nDmPArray[i] = technicalIndicators[i].getKeyNDm1());
-        final BigDecimal nDmP = MathUtils.getSum(nDmPArray);
+      final long nDmOne = lastBody.getFixedLow() - currentBody.getFixedLow() > currentBody.getFixedHigh() - lastBody.getFixedHigh() ? Math.max(
+          lastBody.getFixedLow() - currentBody.getFixedLow(), 0L) : 0L;
+      technicalIndicator.setKeyNDm1(PriceUtils.toPrice(nDmOne));
+
+      if (adxState.addDm(trOne, pDmOne, nDmOne)) {
+        if (NumericMode.FAST.equals(adxState.numericMode)) {
+          calculateFast(adxState, technicalIndicator);
+          return;
+        }
+
+        // get TR(P), +DM(P) and -DM(P)
+        final BigDecimal trP = PriceUtils.toPrice(adxState.trP);
+        final BigDecimal pDmP = PriceUtils.toPrice(adxState.pDmP);
+        final BigDecimal nDmP = PriceUtils.toPrice(adxState.nDmP);
 
         // get +DI(P)
         final BigDecimal pDiP = MathUtils.getMultiplication(DECIMAL, MathUtils.getDivision(pDmP, trP));
-        technicalIndicators[0].setKeyPDiP(pDiP);
+        technicalIndicator.setKeyPDiP(pDiP);
 
         // get -DI(P)
         final BigDecimal nDiP = MathUtils.getMultiplication(DECIMAL, MathUtils.getDivision(nDmP, trP));
-        technicalIndicators[0].setKeyNDiP(nDiP);
+        technicalIndicator.setKeyNDiP(nDiP);
 
         // get DI diff
         final BigDecimal diDiff = pDiP.subtract(nDiP).abs();
@@ -72,25 +167,114 @@ public class AdxService {
 
         // get DX
         final BigDecimal dx = MathUtils.getMultiplication(DECIMAL, MathUtils.getDivision(diDiff, diSum));
-        technicalIndicators[0].setKeyDx(dx);
+        technicalIndicator.setKeyDx(dx);
 
-        if (IntStream.range(0, PERIOD).noneMatch(i -> Objects.isNull(technicalIndicators[i].getKeyDx()))) {
+        if (adxState.addDx(dx)) {
           // get ADX
-          final BigDecimal[] adxArray = new BigDecimal[PERIOD];
-          IntStream.range(0, PERIOD).parallel().forEach(i -> adxArray[i] = technicalIndicators[i].getKeyDx());
-          final BigDecimal adx = MathUtils.getMed(adxArray);
-          technicalIndicators[0].setKeyAdx(adx);
+          final BigDecimal adx = adxState.dxSum.divide(BigDecimal.valueOf(PERIOD), MathUtils.SCALE, MathUtils.ROUNDING_MODE);
+          technicalIndicator.setKeyAdx(adx);
 
           // Setting Signal
           if (adx.compareTo(TENDENCY_LINE) > 0) {
             if (pDiP.compareTo(nDiP) > 0) {
-              technicalIndicators[0].setSignal(SignalIndicator.BULLISH);
+              technicalIndicator.setSignal(SignalIndicator.BULLISH);
             } else if (pDiP.compareTo(nDiP) < 0) {
-              technicalIndicators[0].setSignal(SignalIndicator.BEARISH);
+              technicalIndicator.setSignal(SignalIndicator.BEARISH);
             }
           }
         }
       }
     }
   }
+
+  /**
+   * The +DI(P), -DI(P), DX and ADX of {@link #calculate(AdxState, Candlestick, Candlestick)} with doubles. The fixed TR(P), +DM(P) and -DM(P) sums are exact
+   * and their price scale cancels out in the ratios.
+   */
+  private static void calculateFast(final @NonNull AdxState adxState, final @NonNull AverageDirectionalIndex technicalIndicator) {
+    final double pDiP = adxState.trP == 0 ? 0.0 : 100.0 * adxState.pDmP / adxState.trP;
+    technicalIndicator.setKeyPDiP(BigDecimal.valueOf(pDiP));
+    final double nDiP = adxState.trP == 0 ? 0.0 : 100.0 * adxState.nDmP / adxState.trP;
+    technicalIndicator.setKeyNDiP(BigDecimal.valueOf(nDiP));
+    final double diSum = pDiP + nDiP;
+    final double dx = diSum == 0.0 ? 0.0 : 100.0 * Math.abs(pDiP - nDiP) / diSum;
+    technicalIndicator.setKeyDx(BigDecimal.valueOf(dx));
+
+    if (adxState.addFastDx(dx)) {
+      final double adx = adxState.fastDxSum / PERIOD;
+      technicalIndicator.setKeyAdx(BigDecimal.valueOf(adx));
+      if (adx > TENDENCY_LINE_VALUE) {
+        if (pDiP > nDiP) {
+          technicalIndicator.setSignal(SignalIndicator.BULLISH);
+        } else if (pDiP < nDiP) {
+          technicalIndicator.setSignal(SignalIndicator.BEARISH);
+        }
+      }
+    }
+  }
+
+  /**
+   * Rolling sums of TR1, +DM1, -DM1 and DX over the last {@value #PERIOD} candlesticks of one series. The DX values are decimals in the exact mode and doubles in
+   * the fast one.
+   */
+  public class AdxState {
+
+    @Getter
+    private final NumericMode numericMode;
+    private final long[] tr1 = new long[PERIOD];
+    private final long[] pDm1 = new long[PERIOD];
+    private final long[] nDm1 = new long[PERIOD];
+    private final BigDecimal[] dx = new BigDecimal[PERIOD];
+    private int dmSize;
+    private int dmIndex;
+    private long trP;
+    private long pDmP;
+    private long nDmP;
+    private int dxSize;
+    private int dxIndex;
+    private BigDecimal dxSum = BigDecimal.ZERO;
+    private final double[] fastDx = new double[PERIOD];
+    private double fastDxSum;
+
+    private AdxState(final @NonNull NumericMode numericMode) {
+      this.numericMode = numericMode;
+    }
+
+    /**
+     * @return True when the sums cover {@value #PERIOD} candlesticks
+     */
+    private boolean addDm(final long trOne, final long pDmOne, final long nDmOne) {
+      this.trP += trOne - this.tr1[this.dmIndex];
+      this.pDmP += pDmOne - this.pDm1[this.dmIndex];
+      this.nDmP += nDmOne - this.nDm1[this.dmIndex];
+      this.tr1[this.dmIndex] = trOne;
+      this.pDm1[this.dmIndex] = pDmOne;
+      this.nDm1[this.dmIndex] = nDmOne;
+      this.dmIndex = (this.dmIndex + 1) % PERIOD;
+      this.dmSize = Math.min(this.dmSize + 1, PERIOD);
+      return this.dmSize == PERIOD;
+    }
+
+    /**
+     * @return True when the sum covers {@value #PERIOD} candlesticks
+     */
+    private boolean addDx(final @NonNull BigDecimal dxValue) {
+      this.dxSum = Objects.isNull(this.dx[this.dxIndex]) ? this.dxSum.add(dxValue) : this.dxSum.add(dxValue).subtract(this.dx[this.dxIndex]);
+      this.dx[this.dxIndex] = dxValue;
+      this.dxIndex = (this.dxIndex + 1) % PERIOD;
+      this.dxSize = Math.min(this.dxSize + 1, PERIOD);
+      return this.dxSize == PERIOD;
+    }
+
+    /**
+     * @return True when the sum covers {@value #PERIOD} candlesticks
+     */
+    private boolean addFastDx(final double dxValue) {
+      this.fastDxSum += dxValue - this.fastDx[this.dxIndex];
+      this.fastDx[this.dxIndex] = dxValue;
+      this.dxIndex = (this.dxIndex + 1) % PERIOD;
+      this.dxSize = Math.min(this.dxSize + 1, PERIOD);
+      return this.dxSize == PERIOD;
+    }
+  }
 }
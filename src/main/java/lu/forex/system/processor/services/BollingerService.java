@@ -0,0 +1,119 @@
+package lu.forex.system.processor.services;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import lu.forex.system.processor.enums.NumericMode;
+import lu.forex.system.processor.enums.SignalIndicator;
+import lu.forex.system.processor.models.Candlestick;
+import lu.forex.system.processor.models.CandlestickRepository;
+import lu.forex.system.processor.utils.PriceUtils;
+
+/**
+ * Bollinger bands: the simple average of the last {@value #PERIOD} close prices, with the bands {@value #DEVIATIONS} standard deviations above and below it.
+ * Like the RSI, the close above the upper band is {@link SignalIndicator#BEARISH} and below the lower band {@link SignalIndicator#BULLISH}. Computed with
+ * doubles in every {@link NumericMode}.
+ */
+@UtilityClass
+public class BollingerService {
+
+  static final String NAME = "BOLLINGER";
+  static final String MIDDLE_NAME = "BOLLINGER_MIDDLE";
+  static final String UPPER_NAME = "BOLLINGER_UPPER";
+  static final String LOWER_NAME = "BOLLINGER_LOWER";
+  static final int PERIOD = 20;
+  static final double DEVIATIONS = 2.0;
+
+  public static @NonNull Indicator<BollingerState> getIndicator() {
+    return new Indicator<>() {
+
+      @Override
+      public @NonNull String getName() {
+        return NAME;
+      }
+
+      @Override
+      public @NonNull String getKey() {
+        return NAME + "(" + PERIOD + "," + DEVIATIONS + ")";
+      }
+
+      @Override
+      public @NonNull BollingerState getInitState(final @NonNull NumericMode numericMode) {
+        return new BollingerState();
+      }
+
+      @Override
+      public @NonNull SignalIndicator onCandleClose(final @NonNull BollingerState state, final @NonNull CandlestickRepository repository) {
+        final Candlestick candlestick = repository.getFirst();
+        final long close = candlestick.getBody().getFixedClose();
+        if (!state.add(close)) {
+          return SignalIndicator.NEUTRAL;
+        }
+        // the fixed closes are summed exactly, the deviation is taken around the average so it doesn't lose the small differences
+        final double middle = PriceUtils.toDoublePrice(state.closeSum) / PERIOD;
+        double squares = 0.0;
+        for (final long periodClose : state.closes) {
+          final double difference = PriceUtils.toDoublePrice(periodClose) - middle;
+          squares += difference * difference;
+        }
+        final double deviation = DEVIATIONS * Math.sqrt(squares / PERIOD);
+        final double upper = middle + deviation;
+        final double lower = middle - deviation;
+        candlestick.setIndicatorValue(MIDDLE_NAME, middle);
+        candlestick.setIndicatorValue(UPPER_NAME, upper);
+        candlestick.setIndicatorValue(LOWER_NAME, lower);
+        final double closePrice = PriceUtils.toDoublePrice(close);
+        return closePrice > upper ? SignalIndicator.BEARISH : closePrice < lower ? SignalIndicator.BULLISH : SignalIndicator.NEUTRAL;
+      }
+
+      @Override
+      public void writeState(final @NonNull BollingerState state, final @NonNull DataOutput dataOutput) throws IOException {
+        for (final long close : state.closes) {
+          dataOutput.writeLong(close);
+        }
+        dataOutput.writeInt(state.size);
+        dataOutput.writeInt(state.index);
+        dataOutput.writeLong(state.closeSum);
+      }
+
+      @Override
+      public @NonNull BollingerState readState(final @NonNull DataInput dataInput) throws IOException {
+        final BollingerState state = new BollingerState();
+        for (int i = 0; i < PERIOD; i++) {
+          state.closes[i] = dataInput.readLong();
+        }
+        state.size = dataInput.readInt();
+        state.index = dataInput.readInt();
+        state.closeSum = dataInput.readLong();
+        return state;
+      }
+    };
+  }
+
+  /**
+   * The last {@value #PERIOD} fixed close prices of one series with their sum.
+   */
+  public class BollingerState {
+
+    private final long[] closes = new long[PERIOD];
+    private int size;
+    private int index;
+    private long closeSum;
+
+    private BollingerState() {
+    }
+
+    /**
+     * @return True when the closes cover {@value #PERIOD} candlesticks
+     */
+    private boolean add(final long close) {
+      this.closeSum += close - this.closes[this.index];
+      this.closes[this.index] = close;
+      this.index = (this.index + 1) % PERIOD;
+      this.size = Math.min(this.size + 1, PERIOD);
+      return this.size == PERIOD;
+    }
+  }
+}
@@ -1,100 +1,279 @@
 package lu.forex.system.processor.services;
 
 import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
-import java.io.FileReader;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.experimental.UtilityClass;
 import lombok.extern.log4j.Log4j2;
+import lu.forex.system.processor.enums.NumericMode;
 import lu.forex.system.processor.enums.SignalIndicator;
+import lu.forex.system.processor.enums.SignalRule;
 import lu.forex.system.processor.enums.Symbol;
 import lu.forex.system.processor.enums.TimeFrame;
 import lu.forex.system.processor.models.Candlestick;
+import lu.forex.system.processor.models.CandlestickRepository;
 import lu.forex.system.processor.models.Tick;
+import lu.forex.system.processor.services.IndicatorService.IndicatorSeries;
+import lu.forex.system.processor.services.MetricsService.Counter;
+import lu.forex.system.processor.services.MetricsService.Histogram;
 import lu.forex.system.processor.utils.TimeFrameUtils;
+import org.apache.commons.lang3.tuple.Pair;
 
 @Log4j2
 @UtilityClass
 public class CandlestickService {
 
-  private static final int REPOSITORY_SIZE = 14;
+  static final int REPOSITORY_SIZE = 14;
+  static final int MEMORY_REPOSITORY_SIZE = 50;
+  private static final Map<TimeFrame, Counter> CANDLESTICKS_CLOSED = Arrays.stream(TimeFrame.values())
+      .collect(Collectors.toMap(timeFrame -> timeFrame, timeFrame -> MetricsService.getCounter("candlesticks_closed_total", "timeframe", timeFrame.name()), (a, b) -> a,
+          () -> new EnumMap<>(TimeFrame.class)));
+  private static final Histogram INDICATORS_DURATION = MetricsService.getStageHistogram("indicators");
 
   @SneakyThrows
   public static Stream<Candlestick> getCandlesticks(final @NonNull BufferedReader bufferedReader, final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol) {
+    return getCandlesticks(TickService.getTicks(bufferedReader), timeFrame, symbol);
+  }
+
+  /**
+   * @param ticks The ticks Pair ( CURRENT | LAST )
+   */
+  public static Stream<Candlestick> getCandlesticks(final @NonNull Stream<Pair<Tick, Tick>> ticks, final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol) {
     log.info("Getting Candlesticks for symbol {} at timeframe {}", symbol.name(), timeFrame.name());
-    final LinkedList<Candlestick> repositoryBuffer = getInitCandlestickRepository(REPOSITORY_SIZE);
-
-    return TickService.getTicks(bufferedReader).map(tickTickPair -> {
-      final Tick currentTick = tickTickPair.getKey();
-      final Tick lastTick = tickTickPair.getValue();
-
-      if (TimeFrameUtils.getCandlestickTimestamp(currentTick.getDateTime(), timeFrame).equals(TimeFrameUtils.getCandlestickTimestamp(lastTick.getDateTime(), timeFrame))) {
-        repositoryBuffer.getFirst().getBody().updatePrice(currentTick);
-        return null;
-      } else if (LocalDateTime.MIN.equals(lastTick.getDateTime())) {
-        updateRepositoryBuffer(timeFrame, repositoryBuffer, currentTick);
-        return null;
-      } else {
-        AdxService.calculate(repositoryBuffer.stream().filter(Objects::nonNull).toArray(Candlestick[]::new));
-        RsiService.calculate(repositoryBuffer.stream().filter(Objects::nonNull).toArray(Candlestick[]::new));
-        calculateSignalIndicator(repositoryBuffer.get(0), repositoryBuffer.get(1));
-        final Candlestick lastCandlestick = repositoryBuffer.getFirst();
-        updateRepositoryBuffer(timeFrame, repositoryBuffer, currentTick);
-        return lastCandlestick;
+    final TimeFrameRepository timeFrameRepository = getTimeFrameRepository(timeFrame, new CandlestickRepository(REPOSITORY_SIZE), NumericMode.getDefault(),
+        IndicatorService.getIndicators(), SignalRule.getDefault());
+
+    return ticks.map(tickTickPair -> processTick(timeFrameRepository, tickTickPair)).filter(Objects::nonNull);
+  }
+
+  /**
+   * Build the candlesticks of every timeframe in the same pass over the ticks, each timeframe with its own repository and indicators.
+   *
+   * @param ticks The ticks Pair ( CURRENT | LAST )
+   * @return The closed candlesticks Pair ( TIMEFRAME | CANDLESTICK ), in the order they are closed
+   */
+  public static Stream<Pair<TimeFrame, Candlestick>> getCandlesticks(final @NonNull Stream<Pair<Tick, Tick>> ticks, final @NonNull Collection<TimeFrame> timeFrames,
+      final @NonNull Symbol symbol) {
+    return getCandlesticks(ticks, getInitState(timeFrames), symbol);
+  }
+
+  /**
+   * Continue the candlesticks of the state with the ticks, updating the state.
+   *
+   * @param ticks The ticks Pair ( CURRENT | LAST ), following the ones already in the state
+   * @return The closed candlesticks Pair ( TIMEFRAME | CANDLESTICK ), in the order they are closed
+   */
+  public static Stream<Pair<TimeFrame, Candlestick>> getCandlesticks(final @NonNull Stream<Pair<Tick, Tick>> ticks, final @NonNull CandlestickState candlestickState,
+      final @NonNull Symbol symbol) {
+    log.info("Getting Candlesticks for symbol {} at timeframes {}", symbol.name(), candlestickState.getTimeFrames());
+    final List<TimeFrameRepository> timeFrameRepositories = candlestickState.getTimeFrameRepositories();
+
+    return ticks.flatMap(tickTickPair -> timeFrameRepositories.stream().map(timeFrameRepository -> {
+      final Candlestick candlestick = processTick(timeFrameRepository, tickTickPair);
+      return Objects.isNull(candlestick) ? null : Pair.of(timeFrameRepository.getTimeFrame(), candlestick);
+    }).filter(Objects::nonNull));
+  }
+
+  public static @NonNull CandlestickState getInitState(final @NonNull Collection<TimeFrame> timeFrames) {
+    return getInitState(timeFrames, NumericMode.getDefault());
+  }
+
+  public static @NonNull CandlestickState getInitState(final @NonNull Collection<TimeFrame> timeFrames, final @NonNull NumericMode numericMode) {
+    return getInitState(timeFrames, numericMode, IndicatorService.getIndicators(), SignalRule.getDefault());
+  }
+
+  /**
+   * @param indicators The indicators of every timeframe, in the order they are updated when a candlestick is closed
+   * @param signalRule The combination of the signals of the indicators into the signal of the candlestick
+   */
+  public static @NonNull CandlestickState getInitState(final @NonNull Collection<TimeFrame> timeFrames, final @NonNull NumericMode numericMode,
+      final @NonNull List<Indicator<?>> indicators, final @NonNull SignalRule signalRule) {
+    return getInitState(timeFrames, REPOSITORY_SIZE, numericMode, indicators, signalRule);
+  }
+
+  /**
+   * @param repositorySize The number of candlesticks kept by timeframe, at least {@value #REPOSITORY_SIZE} for the indicators reading the previous ones
+   */
+  static @NonNull CandlestickState getInitState(final @NonNull Collection<TimeFrame> timeFrames, final int repositorySize, final @NonNull NumericMode numericMode,
+      final @NonNull List<Indicator<?>> indicators, final @NonNull SignalRule signalRule) {
+    return new CandlestickState(timeFrames.stream().distinct()
+        .map(timeFrame -> getTimeFrameRepository(timeFrame, new CandlestickRepository(Math.max(repositorySize, REPOSITORY_SIZE)), numericMode, indicators, signalRule))
+        .toList());
+  }
+
+  private static @NonNull TimeFrameRepository getTimeFrameRepository(final @NonNull TimeFrame timeFrame, final @NonNull CandlestickRepository repositoryBuffer,
+      final @NonNull NumericMode numericMode, final @NonNull List<Indicator<?>> indicators, final @NonNull SignalRule signalRule) {
+    return new TimeFrameRepository(timeFrame, repositoryBuffer, numericMode,
+        indicators.stream().<IndicatorSeries<?>>map(indicator -> IndicatorService.getSeries(indicator, numericMode)).toList(), signalRule);
+  }
+
+  public static void writeState(final @NonNull CandlestickState candlestickState, final @NonNull DataOutput dataOutput) throws IOException {
+    dataOutput.writeInt(candlestickState.getTimeFrameRepositories().size());
+    for (final TimeFrameRepository timeFrameRepository : candlestickState.getTimeFrameRepositories()) {
+      dataOutput.writeUTF(timeFrameRepository.getTimeFrame().name());
+      timeFrameRepository.getRepositoryBuffer().writeTo(dataOutput);
+      dataOutput.writeUTF(timeFrameRepository.getNumericMode().name());
+      dataOutput.writeUTF(timeFrameRepository.getSignalRule().name());
+      dataOutput.writeInt(timeFrameRepository.getIndicatorSeries().size());
+      for (final IndicatorSeries<?> indicatorSeries : timeFrameRepository.getIndicatorSeries()) {
+        IndicatorService.writeSeries(indicatorSeries, dataOutput);
       }
-    }).filter(Objects::nonNull);
+    }
   }
 
-  @SneakyThrows
-  public static @NonNull Collection<Candlestick> getCandlesticksMemory(final @NonNull File inputFile, final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol) {
-    log.info("Getting Memory Candlesticks for symbol {} at timeframe {} to size {}", symbol.name(), timeFrame.name(), REPOSITORY_SIZE);
-    final LinkedList<Candlestick> repositoryBuffer = getInitCandlestickRepository(50);
-
-    try (final BufferedReader bufferedReader = new BufferedReader(new FileReader(inputFile))) {
-      TickService.getTicks(bufferedReader).forEach(tickTickPair -> {
-        final Tick currentTick = tickTickPair.getKey();
-        final Tick lastTick = tickTickPair.getValue();
-
-        if (TimeFrameUtils.getCandlestickTimestamp(currentTick.getDateTime(), timeFrame).equals(TimeFrameUtils.getCandlestickTimestamp(lastTick.getDateTime(), timeFrame))) {
-          repositoryBuffer.getFirst().getBody().updatePrice(currentTick);
-        } else if (LocalDateTime.MIN.equals(lastTick.getDateTime())) {
-          updateRepositoryBuffer(timeFrame, repositoryBuffer, currentTick);
-        } else {
-          AdxService.calculate(repositoryBuffer.stream().filter(Objects::nonNull).toArray(Candlestick[]::new));
-          RsiService.calculate(repositoryBuffer.stream().filter(Objects::nonNull).toArray(Candlestick[]::new));
-          calculateSignalIndicator(repositoryBuffer.get(0), repositoryBuffer.get(1));
-          updateRepositoryBuffer(timeFrame, repositoryBuffer, currentTick);
-        }
-      });
+  /**
+   * @throws IOException when an indicator of the state isn't registered anymore or with other parameters
+   */
+  public static @NonNull CandlestickState readState(final @NonNull DataInput dataInput) throws IOException {
+    final int size = dataInput.readInt();
+    final List<TimeFrameRepository> timeFrameRepositories = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      final TimeFrame timeFrame = TimeFrame.valueOf(dataInput.readUTF());
+      final CandlestickRepository repositoryBuffer = CandlestickRepository.readFrom(dataInput);
+      final NumericMode numericMode = NumericMode.valueOf(dataInput.readUTF());
+      final SignalRule signalRule = SignalRule.valueOf(dataInput.readUTF());
+      final int indicatorSize = dataInput.readInt();
+      final List<IndicatorSeries<?>> indicatorSeries = new ArrayList<>(indicatorSize);
+      for (int j = 0; j < indicatorSize; j++) {
+        indicatorSeries.add(IndicatorService.readSeries(dataInput));
+      }
+      timeFrameRepositories.add(new TimeFrameRepository(timeFrame, repositoryBuffer, numericMode, indicatorSeries, signalRule));
     }
+    return new CandlestickState(timeFrameRepositories);
+  }
+
+  /**
+   * @return The candlestick closed by the current tick, or null
+   */
+  private static Candlestick processTick(final @NonNull TimeFrameRepository timeFrameRepository, final @NonNull Pair<Tick, Tick> tickTickPair) {
+    final TimeFrame timeFrame = timeFrameRepository.getTimeFrame();
+    final CandlestickRepository repositoryBuffer = timeFrameRepository.getRepositoryBuffer();
+    final Tick currentTick = tickTickPair.getKey();
+    final Tick lastTick = tickTickPair.getValue();
 
-    AdxService.calculate(repositoryBuffer.stream().filter(Objects::nonNull).toArray(Candlestick[]::new));
-    RsiService.calculate(repositoryBuffer.stream().filter(Objects::nonNull).toArray(Candlestick[]::new));
-    repositoryBuffer.getFirst().setSignalIndicator(SignalIndicator.NEUTRAL);
-    return repositoryBuffer;
+    if (TimeFrameUtils.getCandlestickTimestamp(currentTick.getDateTime(), timeFrame).equals(TimeFrameUtils.getCandlestickTimestamp(lastTick.getDateTime(), timeFrame))) {
+      repositoryBuffer.getFirst().getBody().updatePrice(currentTick);
+      return null;
+    } else if (LocalDateTime.MIN.equals(lastTick.getDateTime())) {
+      updateRepositoryBuffer(timeFrame, repositoryBuffer, currentTick);
+      return null;
+    } else {
+      final long start = System.nanoTime();
+      final SignalIndicator signalIndicator = calculateIndicators(timeFrameRepository);
+      if (Objects.nonNull(repositoryBuffer.get(1))) {
+        repositoryBuffer.getFirst().setSignalIndicator(signalIndicator);
+      }
+      INDICATORS_DURATION.recordSince(start);
+      CANDLESTICKS_CLOSED.get(timeFrame).increment();
+      final Candlestick lastCandlestick = repositoryBuffer.getFirst();
+      updateRepositoryBuffer(timeFrame, repositoryBuffer, currentTick);
+      return lastCandlestick;
+    }
+  }
+
+  /**
+   * @return The last {@value #MEMORY_REPOSITORY_SIZE} candlesticks of the input file, newest first, from its {@link CandlestickStoreService} store. The newest one
+   * is the candlestick still open at the last tick, with its indicators and a neutral signal.
+   */
+  public static @NonNull Collection<Candlestick> getCandlesticksMemory(final @NonNull File inputFile, final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol) {
+    log.info("Getting Memory Candlesticks for symbol {} at timeframe {} to size {}", symbol.name(), timeFrame.name(), MEMORY_REPOSITORY_SIZE);
+    return CandlestickStoreService.getCandlestickStore(inputFile, timeFrame, symbol).getMemoryCandlesticks();
+  }
+
+  /**
+   * Calculate the indicators of the candlestick still open of every timeframe, as if it was closed, with a neutral signal. The state can't be continued after.
+   *
+   * @return The last candlesticks of every timeframe, newest first, or an empty repository when the timeframe has none
+   */
+  static @NonNull Map<TimeFrame, CandlestickRepository> getMemoryCandlesticks(final @NonNull CandlestickState candlestickState) {
+    final Map<TimeFrame, CandlestickRepository> timeFrameRepositoryMap = new EnumMap<>(TimeFrame.class);
+    for (final TimeFrameRepository timeFrameRepository : candlestickState.getTimeFrameRepositories()) {
+      final CandlestickRepository repositoryBuffer = timeFrameRepository.getRepositoryBuffer();
+      if (Objects.nonNull(repositoryBuffer.getFirst())) {
+        calculateIndicators(timeFrameRepository);
+        repositoryBuffer.getFirst().setSignalIndicator(SignalIndicator.NEUTRAL);
+      }
+      timeFrameRepositoryMap.put(timeFrameRepository.getTimeFrame(), repositoryBuffer);
+    }
+    return timeFrameRepositoryMap;
   }
 
-  private static void updateRepositoryBuffer(final @NonNull TimeFrame timeFrame, final @NonNull LinkedList<Candlestick> repositoryBuffer, final @NonNull Tick currentTick) {
+  private static void updateRepositoryBuffer(final @NonNull TimeFrame timeFrame, final @NonNull CandlestickRepository repositoryBuffer, final @NonNull Tick currentTick) {
     repositoryBuffer.addFirst(new Candlestick(currentTick, timeFrame));
-    repositoryBuffer.removeLast();
   }
 
-  private static LinkedList<Candlestick> getInitCandlestickRepository(final int repositorySize) {
-    return IntStream.range(0, repositorySize).mapToObj(i -> (Candlestick) null).collect(Collectors.toCollection(LinkedList::new));
+  /**
+   * Update every indicator with the newest candlestick of the repository, in order.
+   *
+   * @return The signals of the indicators combined with the rule of the repository
+   */
+  private static @NonNull SignalIndicator calculateIndicators(final @NonNull TimeFrameRepository timeFrameRepository) {
+    final List<IndicatorSeries<?>> indicatorSeries = timeFrameRepository.getIndicatorSeries();
+    final SignalIndicator[] signals = new SignalIndicator[indicatorSeries.size()];
+    for (int i = 0; i < signals.length; i++) {
+      signals[i] = indicatorSeries.get(i).onCandleClose(timeFrameRepository.getRepositoryBuffer());
+    }
+    return timeFrameRepository.getSignalRule().combine(Arrays.asList(signals));
   }
 
-  public static void calculateSignalIndicator(final @NonNull Candlestick currentCandlestick, final Candlestick lastCandlestick) {
-    if (Objects.nonNull(lastCandlestick) && currentCandlestick.getAdx().getSignal().equals(currentCandlestick.getRsi().getSignal())) {
-      currentCandlestick.setSignalIndicator(currentCandlestick.getAdx().getSignal());
+  /**
+   * The candlesticks being built of every timeframe with their indicators state, to continue them with the following ticks.
+   */
+  @Getter
+  @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+  public class CandlestickState {
+
+    @Getter(AccessLevel.PRIVATE)
+    private final List<TimeFrameRepository> timeFrameRepositories;
+
+    public @NonNull List<TimeFrame> getTimeFrames() {
+      return this.getTimeFrameRepositories().stream().map(TimeFrameRepository::getTimeFrame).toList();
+    }
+
+    /**
+     * @return The numeric mode of the indicators of every timeframe, or null when the state has no timeframe
+     */
+    public NumericMode getNumericMode() {
+      return this.getTimeFrameRepositories().stream().map(TimeFrameRepository::getNumericMode).findFirst().orElse(null);
     }
+
+    /**
+     * @return The keys of the indicators of every timeframe with their signal rule, see {@link IndicatorService#getKey()}, or null when the state has no
+     * timeframe
+     */
+    public String getIndicatorKey() {
+      return this.getTimeFrameRepositories().stream().map(timeFrameRepository -> String.join(",",
+              timeFrameRepository.getIndicatorSeries().stream().map(indicatorSeries -> indicatorSeries.getIndicator().getKey()).toList()) + "|"
+          + timeFrameRepository.getSignalRule().name()).findFirst().orElse(null);
+    }
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  private class TimeFrameRepository {
+
+    private final TimeFrame timeFrame;
+    private final CandlestickRepository repositoryBuffer;
+    private final NumericMode numericMode;
+    private final List<IndicatorSeries<?>> indicatorSeries;
+    private final SignalRule signalRule;
   }
 
 }
@@ -0,0 +1,245 @@
+package lu.forex.system.processor.services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
+import lu.forex.system.processor.enums.NumericMode;
+import lu.forex.system.processor.enums.SignalRule;
+import lu.forex.system.processor.enums.Symbol;
+import lu.forex.system.processor.enums.TimeFrame;
+import lu.forex.system.processor.models.Candlestick;
+import lu.forex.system.processor.models.CandlestickRepository;
+import lu.forex.system.processor.models.CandlestickSeries;
+import lu.forex.system.processor.models.Tick;
+import lu.forex.system.processor.services.CandlestickService.CandlestickState;
+import lu.forex.system.processor.services.CheckpointService.Checkpoint;
+import lu.forex.system.processor.services.TickCacheService.TickCache;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Store of the candlesticks of a tick file by timeframe, with their indicators, built in one pass over the ticks and read back by the trades, the candlestick
+ * reports and the memory candlesticks instead of aggregating the ticks again.
+ * <p>
+ * Layout of a store file: the magic number and the version, the size and the last modified time of the tick file, the number of ticks of the tick cache
+ * it covers, the key of the parameters the candlesticks depend on, every closed candlestick as a {@link CandlestickSeries}, whose first column is the sorted
+ * timestamps searched as the index by {@link CandlestickStore#getCandlesticks(LocalDateTime, LocalDateTime)}, and the last
+ * {@value CandlestickService#MEMORY_REPOSITORY_SIZE} candlesticks with their exact values as a {@link CandlestickRepository}. With
+ * {@code -Dcandlestick.store=false} the stores are built in memory only.
+ * <p>
+ * With {@code -Dpreprocessor.delta=true} the state of the candlesticks still open is kept in a {@link CheckpointService} checkpoint, and the stores of a tick
+ * file that grew are continued with the new ticks only.
+ */
+@Log4j2
+@UtilityClass
+public class CandlestickStoreService {
+
+  private static final String STORE_FOLDER = ".candles";
+  private static final String STORE_EXTENSION = ".candles";
+  private static final int MAGIC = 0x43414E44;
+  private static final int VERSION = 2;
+  private static final String ENABLED_PROPERTY = "candlestick.store";
+  private static final boolean OFF_HEAP_SERIES = Boolean.getBoolean("candlestick.series.offHeap");
+  private static final Map<String, ReentrantLock> STORE_LOCKS = new ConcurrentHashMap<>();
+
+  /**
+   * @return False with {@code -Dcandlestick.store=false}, read on every call like {@link CheckpointService#isEnabled()}
+   */
+  private static boolean isEnabled() {
+    return Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+  }
+
+  public static @NonNull CandlestickStore getCandlestickStore(final @NonNull File inputFile, final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol) {
+    return getCandlestickStores(inputFile, List.of(timeFrame), symbol).get(timeFrame);
+  }
+
+  /**
+   * Get the store of every timeframe of the input file, building the missing or outdated ones together in one pass over the ticks.
+   */
+  public static @NonNull Map<TimeFrame, CandlestickStore> getCandlestickStores(final @NonNull File inputFile, final @NonNull Collection<TimeFrame> timeFrames,
+      final @NonNull Symbol symbol) {
+    final ReentrantLock lock = STORE_LOCKS.computeIfAbsent(inputFile.getAbsolutePath(), key -> new ReentrantLock());
+    lock.lock();
+    try {
+      final Map<TimeFrame, CandlestickStore> timeFrameStoreMap = new EnumMap<>(TimeFrame.class);
+      final List<TimeFrame> missingTimeFrames = new ArrayList<>();
+      final Map<TimeFrame, CandlestickStore> outdatedStoreMap = new EnumMap<>(TimeFrame.class);
+      for (final TimeFrame timeFrame : timeFrames.stream().distinct().toList()) {
+        final CandlestickStore candlestickStore = readStore(inputFile, timeFrame);
+        if (Objects.isNull(candlestickStore)) {
+          missingTimeFrames.add(timeFrame);
+        } else if (candlestickStore.inputLength != inputFile.length() || candlestickStore.inputLastModified != inputFile.lastModified()) {
+          missingTimeFrames.add(timeFrame);
+          outdatedStoreMap.put(timeFrame, candlestickStore);
+        } else {
+          timeFrameStoreMap.put(timeFrame, candlestickStore);
+        }
+      }
+      if (!missingTimeFrames.isEmpty()) {
+        final Map<TimeFrame, CandlestickStore> builtStoreMap = buildStores(inputFile, missingTimeFrames, symbol, outdatedStoreMap);
+        if (isEnabled()) {
+          builtStoreMap.forEach((timeFrame, candlestickStore) -> writeStore(inputFile, timeFrame, candlestickStore));
+        }
+        timeFrameStoreMap.putAll(builtStoreMap);
+      }
+      return timeFrameStoreMap;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Build the stores of the timeframes from the first tick, or continue the outdated ones after the ticks of the checkpoint when they cover the same ticks.
+   */
+  private static @NonNull Map<TimeFrame, CandlestickStore> buildStores(final @NonNull File inputFile, final @NonNull List<TimeFrame> timeFrames,
+      final @NonNull Symbol symbol, final @NonNull Map<TimeFrame, CandlestickStore> outdatedStoreMap) {
+    final TickCache tickCache = TickCacheService.getTickCache(inputFile);
+    final Checkpoint checkpoint = CheckpointService.isEnabled() ? CheckpointService.getCheckpoint(inputFile, tickCache, timeFrames) : null;
+    final Map<TimeFrame, CandlestickSeries> timeFrameSeriesMap = new EnumMap<>(TimeFrame.class);
+    final CandlestickState candlestickState;
+    final long from;
+    if (Objects.nonNull(checkpoint) && timeFrames.stream()
+        .allMatch(timeFrame -> outdatedStoreMap.containsKey(timeFrame) && outdatedStoreMap.get(timeFrame).tickSize == checkpoint.getTickSize())) {
+      log.info("Continuing the candlestick store of {} at timeframes {} with {} ticks after the {} ticks of the checkpoint", inputFile.getName(), timeFrames,
+          tickCache.getSize() - checkpoint.getTickSize(), checkpoint.getTickSize());
+      timeFrames.forEach(timeFrame -> timeFrameSeriesMap.put(timeFrame, outdatedStoreMap.get(timeFrame).getCandlesticks()));
+      candlestickState = checkpoint.getCandlestickState();
+      from = checkpoint.getTickSize();
+    } else {
+      log.info("Building the candlestick store of {} at timeframes {}", inputFile.getName(), timeFrames);
+      timeFrames.forEach(timeFrame -> timeFrameSeriesMap.put(timeFrame, new CandlestickSeries(OFF_HEAP_SERIES)));
+      candlestickState = CandlestickService.getInitState(timeFrames, CandlestickService.MEMORY_REPOSITORY_SIZE, NumericMode.getDefault(), IndicatorService.getIndicators(),
+          SignalRule.getDefault());
+      from = 0;
+    }
+    try (final Stream<Pair<Tick, Tick>> ticks = TickCacheService.getTicks(tickCache, from)) {
+      CandlestickService.getCandlesticks(ticks, candlestickState, symbol)
+          .forEach(timeFrameCandlestickPair -> timeFrameSeriesMap.get(timeFrameCandlestickPair.getKey()).add(timeFrameCandlestickPair.getValue()));
+    }
+    if (CheckpointService.isEnabled() && isEnabled()) {
+      CheckpointService.putCheckpoint(inputFile, tickCache, candlestickState);
+    }
+    final Map<TimeFrame, CandlestickStore> timeFrameStoreMap = new EnumMap<>(TimeFrame.class);
+    CandlestickService.getMemoryCandlesticks(candlestickState).forEach((timeFrame, repositoryBuffer) -> timeFrameStoreMap.put(timeFrame,
+        new CandlestickStore(inputFile.length(), inputFile.lastModified(), tickCache.getSize(), timeFrameSeriesMap.get(timeFrame), repositoryBuffer)));
+    return timeFrameStoreMap;
+  }
+
+  /**
+   * @return The parameters the candlesticks of the timeframe depend on
+   */
+  private static @NonNull String getKey(final @NonNull TimeFrame timeFrame) {
+    return String.join("|", timeFrame.name(), String.valueOf(CandlestickService.REPOSITORY_SIZE), String.valueOf(CandlestickService.MEMORY_REPOSITORY_SIZE),
+        NumericMode.getDefault().name(), IndicatorService.getKey());
+  }
+
+  private static @NonNull File getStoreFile(final @NonNull File inputFile, final @NonNull TimeFrame timeFrame) {
+    return new File(new File(inputFile.getAbsoluteFile().getParentFile(), STORE_FOLDER), inputFile.getName() + "_" + timeFrame.name() + STORE_EXTENSION);
+  }
+
+  /**
+   * @return The store, or null when it is disabled, missing or from another version or parameters
+   */
+  private static CandlestickStore readStore(final @NonNull File inputFile, final @NonNull TimeFrame timeFrame) {
+    final File storeFile = getStoreFile(inputFile, timeFrame);
+    if (!isEnabled() || !storeFile.exists()) {
+      return null;
+    }
+    try (final DataInputStream dataInput = new DataInputStream(new BufferedInputStream(new FileInputStream(storeFile)))) {
+      if (dataInput.readInt() != MAGIC || dataInput.readInt() != VERSION) {
+        return null;
+      }
+      final long inputLength = dataInput.readLong();
+      final long inputLastModified = dataInput.readLong();
+      final long tickSize = dataInput.readLong();
+      if (!getKey(timeFrame).equals(dataInput.readUTF())) {
+        return null;
+      }
+      final CandlestickStore candlestickStore = new CandlestickStore(inputLength, inputLastModified, tickSize, CandlestickSeries.readFrom(dataInput, OFF_HEAP_SERIES),
+          CandlestickRepository.readFrom(dataInput));
+      log.info("Candlestick store {} read with {} candlesticks", storeFile.getName(), candlestickStore.getCandlesticks().size());
+      return candlestickStore;
+    } catch (IOException e) {
+      log.warn("Candlestick store {} can't be read", storeFile.getName(), e);
+      return null;
+    }
+  }
+
+  private static void writeStore(final @NonNull File inputFile, final @NonNull TimeFrame timeFrame, final @NonNull CandlestickStore candlestickStore) {
+    final File storeFile = getStoreFile(inputFile, timeFrame);
+    try {
+      Files.createDirectories(storeFile.getParentFile().toPath());
+      final File tmpFile = File.createTempFile(storeFile.getName(), ".tmp", storeFile.getParentFile());
+      try {
+        try (final DataOutputStream dataOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+          dataOutput.writeInt(MAGIC);
+          dataOutput.writeInt(VERSION);
+          dataOutput.writeLong(candlestickStore.inputLength);
+          dataOutput.writeLong(candlestickStore.inputLastModified);
+          dataOutput.writeLong(candlestickStore.tickSize);
+          dataOutput.writeUTF(getKey(timeFrame));
+          candlestickStore.getCandlesticks().writeTo(dataOutput);
+          candlestickStore.getMemoryCandlesticks().writeTo(dataOutput);
+        }
+        Files.move(tmpFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Candlestick store {} written with {} candlesticks", storeFile.getName(), candlestickStore.getCandlesticks().size());
+      } finally {
+        Files.deleteIfExists(tmpFile.toPath());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * The candlesticks of one timeframe of a tick file: every closed one, in order, and the last ones with the candlestick still open at the last tick.
+   */
+  @Getter
+  @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+  public class CandlestickStore {
+
+    @Getter(AccessLevel.NONE)
+    private final long inputLength;
+    @Getter(AccessLevel.NONE)
+    private final long inputLastModified;
+    /**
+     * The number of ticks of the tick cache the candlesticks are built with
+     */
+    private final long tickSize;
+    private final CandlestickSeries candlesticks;
+    /**
+     * The last candlesticks, newest first, the open one with its indicators and a neutral signal
+     */
+    private final CandlestickRepository memoryCandlesticks;
+
+    /**
+     * @return The closed candlesticks with a timestamp from the first timestamp, included, to the second, excluded, searched in the timestamp column
+     */
+    public @NonNull List<Candlestick> getCandlesticks(final @NonNull LocalDateTime from, final @NonNull LocalDateTime to) {
+      final int fromIndex = this.candlesticks.indexOf(from);
+      return this.candlesticks.subList(fromIndex, Math.max(fromIndex, this.candlesticks.indexOf(to)));
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package lu.forex.system.processor.services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
+import lu.forex.system.processor.enums.NumericMode;
+import lu.forex.system.processor.enums.TimeFrame;
+import lu.forex.system.processor.models.Tick;
+import lu.forex.system.processor.services.CandlestickService.CandlestickState;
+import lu.forex.system.processor.services.TickCacheService.TickCache;
+import lu.forex.system.processor.utils.DateTimeUtils;
+
+/**
+ * Checkpoint of the candlesticks of a tick file, to continue its {@link CandlestickStoreService} stores with only the ticks appended to it since the last run,
+ * with {@code -Dpreprocessor.delta=true}.
+ * <p>
+ * A checkpoint keeps the number of ticks it covers with the last one and the candlesticks being built of every timeframe with the state of their indicators,
+ * the closed ones being in the stores. It is only used while the tick cache still starts with the same ticks.
+ */
+@Log4j2
+@UtilityClass
+public class CheckpointService {
+
+  private static final String CHECKPOINT_FOLDER = ".checkpoints";
+  private static final String CHECKPOINT_EXTENSION = ".checkpoint";
+  private static final int MAGIC = 0x43484B50;
+  private static final int VERSION = 5;
+  private static final String ENABLED_PROPERTY = "preprocessor.delta";
+
+  /**
+   * @return True with {@code -Dpreprocessor.delta=true}, read on every call so the mode can change without restarting the JVM
+   */
+  public static boolean isEnabled() {
+    return Boolean.getBoolean(ENABLED_PROPERTY);
+  }
+
+  /**
+   * @return The checkpoint of the input file for the timeframes, or null when there is none to continue
+   */
+  public static Checkpoint getCheckpoint(final @NonNull File inputFile, final @NonNull TickCache tickCache, final @NonNull List<TimeFrame> timeFrames) {
+    return readCheckpoint(getCheckpointFile(inputFile), tickCache, timeFrames);
+  }
+
+  /**
+   * Save the state of the candlesticks built with every tick of the tick cache. To be called before the state is used to close the open candlesticks.
+   */
+  public static void putCheckpoint(final @NonNull File inputFile, final @NonNull TickCache tickCache, final @NonNull CandlestickState candlestickState) {
+    writeCheckpoint(getCheckpointFile(inputFile), tickCache, new Checkpoint(tickCache.getSize(), candlestickState));
+  }
+
+  private static @NonNull File getCheckpointFile(final @NonNull File inputFile) {
+    return new File(new File(inputFile.getAbsoluteFile().getParentFile(), CHECKPOINT_FOLDER), inputFile.getName().concat(CHECKPOINT_EXTENSION));
+  }
+
+  /**
+   * @return The checkpoint, or null when it is missing, from another version, timeframes, numeric mode or indicators, or its ticks are not the first ones of the tick cache anymore
+   */
+  private static Checkpoint readCheckpoint(final @NonNull File checkpointFile, final @NonNull TickCache tickCache, final @NonNull List<TimeFrame> timeFrames) {
+    if (!checkpointFile.exists()) {
+      return null;
+    }
+    try (final DataInputStream dataInput = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile)))) {
+      if (dataInput.readInt() != MAGIC || dataInput.readInt() != VERSION) {
+        return null;
+      }
+      final long tickSize = dataInput.readLong();
+      final long lastEpochMilli = dataInput.readLong();
+      final long lastBid = dataInput.readLong();
+      final long lastAsk = dataInput.readLong();
+      if (tickSize <= 0 || tickSize > tickCache.getSize() || tickCache.getTimestamp(tickSize - 1) != lastEpochMilli || tickCache.getFixedBid(tickSize - 1) != lastBid
+          || tickCache.getFixedAsk(tickSize - 1) != lastAsk) {
+        log.warn("Checkpoint {} doesn't match the ticks anymore", checkpointFile.getName());
+        return null;
+      }
+      final CandlestickState candlestickState = CandlestickService.readState(dataInput);
+      if (!candlestickState.getTimeFrames().equals(timeFrames) || candlestickState.getNumericMode() != NumericMode.getDefault()
+          || !IndicatorService.getKey().equals(candlestickState.getIndicatorKey())) {
+        return null;
+      }
+      return new Checkpoint(tickSize, candlestickState);
+    } catch (IOException e) {
+      log.warn("Checkpoint {} can't be read", checkpointFile.getName(), e);
+      return null;
+    }
+  }
+
+  private static void writeCheckpoint(final @NonNull File checkpointFile, final @NonNull TickCache tickCache, final @NonNull Checkpoint checkpoint) {
+    if (checkpoint.tickSize == 0) {
+      return;
+    }
+    try {
+      Files.createDirectories(checkpointFile.getParentFile().toPath());
+      final File tmpFile = File.createTempFile(checkpointFile.getName(), ".tmp", checkpointFile.getParentFile());
+      try {
+        try (final DataOutputStream dataOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+          final Tick lastTick = tickCache.getTick(checkpoint.tickSize - 1);
+          dataOutput.writeInt(MAGIC);
+          dataOutput.writeInt(VERSION);
+          dataOutput.writeLong(checkpoint.tickSize);
+          dataOutput.writeLong(DateTimeUtils.toEpochMilli(lastTick.getDateTime()));
+          dataOutput.writeLong(lastTick.getFixedBid());
+          dataOutput.writeLong(lastTick.getFixedAsk());
+          CandlestickService.writeState(checkpoint.candlestickState, dataOutput);
+        }
+        Files.move(tmpFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Checkpoint {} written at {} ticks", checkpointFile.getName(), checkpoint.tickSize);
+      } finally {
+        Files.deleteIfExists(tmpFile.toPath());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * The candlesticks being built after the first ticks of the tick cache.
+   */
+  @Getter
+  @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+  public class Checkpoint {
+
+    private final long tickSize;
+    private final CandlestickState candlestickState;
+  }
+}
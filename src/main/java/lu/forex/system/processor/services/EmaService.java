@@ -0,0 +1,114 @@
+package lu.forex.system.processor.services;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import lu.forex.system.processor.enums.NumericMode;
+import lu.forex.system.processor.enums.SignalIndicator;
+import lu.forex.system.processor.models.Candlestick;
+import lu.forex.system.processor.models.CandlestickRepository;
+import lu.forex.system.processor.utils.PriceUtils;
+
+/**
+ * Exponential moving average of the close prices, seeded with the simple average of the first {@value #PERIOD} closes. The close above the average is
+ * {@link SignalIndicator#BULLISH}, below it {@link SignalIndicator#BEARISH}. Computed with doubles in every {@link NumericMode}.
+ */
+@UtilityClass
+public class EmaService {
+
+  static final String NAME = "EMA";
+  static final int PERIOD = 20;
+
+  public static @NonNull Indicator<EmaState> getIndicator() {
+    return getIndicator(PERIOD);
+  }
+
+  public static @NonNull Indicator<EmaState> getIndicator(final int period) {
+    return new Indicator<>() {
+
+      @Override
+      public @NonNull String getName() {
+        return NAME;
+      }
+
+      @Override
+      public @NonNull String getKey() {
+        return NAME + "(" + period + ")";
+      }
+
+      @Override
+      public @NonNull EmaState getInitState(final @NonNull NumericMode numericMode) {
+        return new EmaState(period);
+      }
+
+      @Override
+      public @NonNull SignalIndicator onCandleClose(final @NonNull EmaState state, final @NonNull CandlestickRepository repository) {
+        final Candlestick candlestick = repository.getFirst();
+        final double close = PriceUtils.toDoublePrice(candlestick.getBody().getFixedClose());
+        if (!state.add(close)) {
+          return SignalIndicator.NEUTRAL;
+        }
+        candlestick.setIndicatorValue(NAME, state.getValue());
+        return close > state.getValue() ? SignalIndicator.BULLISH : close < state.getValue() ? SignalIndicator.BEARISH : SignalIndicator.NEUTRAL;
+      }
+
+      @Override
+      public void writeState(final @NonNull EmaState state, final @NonNull DataOutput dataOutput) throws IOException {
+        state.writeTo(dataOutput);
+      }
+
+      @Override
+      public @NonNull EmaState readState(final @NonNull DataInput dataInput) throws IOException {
+        return EmaState.readFrom(dataInput);
+      }
+    };
+  }
+
+  /**
+   * Average of a series of values, the simple one until {@code period} values are added and the exponential one after.
+   */
+  public class EmaState {
+
+    private final int period;
+    private final double alpha;
+    private int size;
+    private double value;
+
+    EmaState(final int period) {
+      this.period = period;
+      this.alpha = 2.0 / (period + 1);
+    }
+
+    /**
+     * @return True when the average covers {@code period} values
+     */
+    boolean add(final double newValue) {
+      if (this.size < this.period) {
+        this.size++;
+        this.value += (newValue - this.value) / this.size;
+        return this.size == this.period;
+      }
+      this.value += this.alpha * (newValue - this.value);
+      return true;
+    }
+
+    double getValue() {
+      return this.value;
+    }
+
+    void writeTo(final @NonNull DataOutput dataOutput) throws IOException {
+      dataOutput.writeInt(this.period);
+      dataOutput.writeInt(this.size);
+      dataOutput.writeDouble(this.value);
+    }
+
+    static @NonNull EmaState readFrom(final @NonNull DataInput dataInput) throws IOException {
+      final EmaState emaState = new EmaState(dataInput.readInt());
+      emaState.size = dataInput.readInt();
+      emaState.value = dataInput.readDouble();
+      return emaState;
+    }
+  }
+}
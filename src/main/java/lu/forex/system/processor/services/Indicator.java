@@ -0,0 +1,44 @@
+package lu.forex.system.processor.services;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import lombok.NonNull;
+import lu.forex.system.processor.enums.NumericMode;
+import lu.forex.system.processor.enums.SignalIndicator;
+import lu.forex.system.processor.models.CandlestickRepository;
+
+/**
+ * Technical indicator updated incrementally in the candlestick pass: {@link #onCandleClose(Object, CandlestickRepository)} is called once for every closed
+ * candlestick of a series, in order, with the state of that series. The indicators of a run are registered in the {@link IndicatorService}.
+ *
+ * @param <S> The state of one series, kept between the candlesticks and written in the checkpoints
+ */
+public interface Indicator<S> {
+
+  /**
+   * @return The name the indicator is registered and selected by, e.g. {@code EMA}
+   */
+  @NonNull String getName();
+
+  /**
+   * @return The name with every parameter the values depend on, e.g. {@code EMA(20)}, to tell the cached results apart
+   */
+  default @NonNull String getKey() {
+    return this.getName();
+  }
+
+  @NonNull S getInitState(@NonNull NumericMode numericMode);
+
+  /**
+   * Update the state with the closed candlestick and set its values.
+   *
+   * @param repository The last candlesticks of the series, the closed one first
+   * @return The signal of the indicator for the closed candlestick
+   */
+  @NonNull SignalIndicator onCandleClose(@NonNull S state, @NonNull CandlestickRepository repository);
+
+  void writeState(@NonNull S state, @NonNull DataOutput dataOutput) throws IOException;
+
+  @NonNull S readState(@NonNull DataInput dataInput) throws IOException;
+}
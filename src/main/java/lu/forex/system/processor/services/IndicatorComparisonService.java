@@ -0,0 +1,119 @@
+package lu.forex.system.processor.services;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
+import lu.forex.system.processor.enums.NumericMode;
+import lu.forex.system.processor.enums.Symbol;
+import lu.forex.system.processor.enums.TimeFrame;
+import lu.forex.system.processor.models.AverageDirectionalIndex;
+import lu.forex.system.processor.models.Candlestick;
+import lu.forex.system.processor.models.RelativeStrengthIndex;
+import lu.forex.system.processor.models.Tick;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Comparison of the indicators of the {@link NumericMode#FAST} mode against the {@link NumericMode#EXACT} reference. Both modes build the candlesticks of the
+ * same ticks side by side, so the candlesticks close in the same order and are compared one by one without keeping them.
+ */
+@Log4j2
+@UtilityClass
+public class IndicatorComparisonService {
+
+  public static @NonNull Map<TimeFrame, IndicatorComparison> compare(final @NonNull File inputFile, final @NonNull Collection<TimeFrame> timeFrames,
+      final @NonNull Symbol symbol) {
+    final Map<TimeFrame, IndicatorComparison> timeFrameComparisonMap = new EnumMap<>(TimeFrame.class);
+    timeFrames.forEach(timeFrame -> timeFrameComparisonMap.put(timeFrame, new IndicatorComparison()));
+    try (final Stream<Pair<Tick, Tick>> exactTicks = TickCacheService.getTicks(inputFile); final Stream<Pair<Tick, Tick>> fastTicks = TickCacheService.getTicks(inputFile)) {
+      final Iterator<Pair<TimeFrame, Candlestick>> exactCandlesticks = CandlestickService.getCandlesticks(exactTicks,
+          CandlestickService.getInitState(timeFrames, NumericMode.EXACT), symbol).iterator();
+      final Iterator<Pair<TimeFrame, Candlestick>> fastCandlesticks = CandlestickService.getCandlesticks(fastTicks,
+          CandlestickService.getInitState(timeFrames, NumericMode.FAST), symbol).iterator();
+      while (exactCandlesticks.hasNext() && fastCandlesticks.hasNext()) {
+        final Pair<TimeFrame, Candlestick> exactCandlestick = exactCandlesticks.next();
+        final Pair<TimeFrame, Candlestick> fastCandlestick = fastCandlesticks.next();
+        if (!exactCandlestick.getKey().equals(fastCandlestick.getKey()) || !exactCandlestick.getValue().getTimestamp().equals(fastCandlestick.getValue().getTimestamp())) {
+          throw new IllegalStateException("Candlesticks out of step: " + exactCandlestick.getValue().getTimestamp() + " and " + fastCandlestick.getValue().getTimestamp());
+        }
+        timeFrameComparisonMap.get(exactCandlestick.getKey()).add(exactCandlestick.getValue(), fastCandlestick.getValue());
+      }
+    }
+    timeFrameComparisonMap.forEach((timeFrame, indicatorComparison) -> log.info("Fast indicators of symbol {} at timeframe {}: {}", symbol.name(), timeFrame.name(),
+        indicatorComparison));
+    return timeFrameComparisonMap;
+  }
+
+  /**
+   * Maximum absolute deviation of every indicator value and the signals that differ between the two modes, over the closed candlesticks of one timeframe.
+   */
+  @Getter
+  public class IndicatorComparison {
+
+    private long candlesticks;
+    private double maxAdxDeviation;
+    private double maxDiDeviation;
+    private double maxDxDeviation;
+    private double maxRsiDeviation;
+    private double maxRsiAverageDeviation;
+    private long adxSignalFlips;
+    private long rsiSignalFlips;
+    private long signalFlips;
+    private LocalDateTime firstSignalFlip;
+
+    private IndicatorComparison() {
+    }
+
+    private void add(final @NonNull Candlestick exactCandlestick, final @NonNull Candlestick fastCandlestick) {
+      this.candlesticks++;
+      final AverageDirectionalIndex exactAdx = exactCandlestick.getAdx();
+      final AverageDirectionalIndex fastAdx = fastCandlestick.getAdx();
+      this.maxAdxDeviation = Math.max(this.maxAdxDeviation, getDeviation(exactAdx.getKeyAdx(), fastAdx.getKeyAdx()));
+      this.maxDiDeviation = Math.max(this.maxDiDeviation, Math.max(getDeviation(exactAdx.getKeyPDiP(), fastAdx.getKeyPDiP()), getDeviation(exactAdx.getKeyNDiP(), fastAdx.getKeyNDiP())));
+      this.maxDxDeviation = Math.max(this.maxDxDeviation, getDeviation(exactAdx.getKeyDx(), fastAdx.getKeyDx()));
+      final RelativeStrengthIndex exactRsi = exactCandlestick.getRsi();
+      final RelativeStrengthIndex fastRsi = fastCandlestick.getRsi();
+      this.maxRsiDeviation = Math.max(this.maxRsiDeviation, getDeviation(exactRsi.getKeyRsi(), fastRsi.getKeyRsi()));
+      this.maxRsiAverageDeviation = Math.max(this.maxRsiAverageDeviation,
+          Math.max(getDeviation(exactRsi.getKeyAverageGain(), fastRsi.getKeyAverageGain()), getDeviation(exactRsi.getKeyAverageLoss(), fastRsi.getKeyAverageLoss())));
+      if (!exactAdx.getSignal().equals(fastAdx.getSignal())) {
+        this.adxSignalFlips++;
+      }
+      if (!exactRsi.getSignal().equals(fastRsi.getSignal())) {
+        this.rsiSignalFlips++;
+      }
+      if (!exactCandlestick.getSignalIndicator().equals(fastCandlestick.getSignalIndicator())) {
+        this.signalFlips++;
+        if (Objects.isNull(this.firstSignalFlip)) {
+          this.firstSignalFlip = exactCandlestick.getTimestamp();
+        }
+      }
+    }
+
+    /**
+     * @return The absolute difference, infinite when only one of the values is set
+     */
+    private static double getDeviation(final BigDecimal exactValue, final BigDecimal fastValue) {
+      if (Objects.isNull(exactValue) || Objects.isNull(fastValue)) {
+        return Objects.equals(exactValue, fastValue) ? 0.0 : Double.POSITIVE_INFINITY;
+      }
+      return exactValue.subtract(fastValue).abs().doubleValue();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d candlesticks, max deviation ADX %.3e, DI %.3e, DX %.3e, RSI %.3e, RSI averages %.3e, signal flips ADX %d, RSI %d, candlestick %d%s",
+          this.candlesticks, this.maxAdxDeviation, this.maxDiDeviation, this.maxDxDeviation, this.maxRsiDeviation, this.maxRsiAverageDeviation, this.adxSignalFlips,
+          this.rsiSignalFlips, this.signalFlips, Objects.isNull(this.firstSignalFlip) ? "" : " (first at " + this.firstSignalFlip + ")");
+    }
+  }
+}
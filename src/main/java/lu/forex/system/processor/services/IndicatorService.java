@@ -0,0 +1,124 @@
+package lu.forex.system.processor.services;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
+import lu.forex.system.processor.enums.NumericMode;
+import lu.forex.system.processor.enums.SignalIndicator;
+import lu.forex.system.processor.enums.SignalRule;
+import lu.forex.system.processor.models.CandlestickRepository;
+
+/**
+ * Registry of the {@link Indicator}s. The indicators of a run are selected by name with {@code -Dindicator.names}, {@value #DEFAULT_NAMES} by default, in the
+ * order they are updated, and their signals are combined with the {@link SignalRule#getDefault()} rule.
+ */
+@Log4j2
+@UtilityClass
+public class IndicatorService {
+
+  private static final String DEFAULT_NAMES = "ADX,RSI";
+  private static final Map<String, Indicator<?>> INDICATORS = new ConcurrentHashMap<>();
+
+  static {
+    register(AdxService.getIndicator());
+    register(RsiService.getIndicator());
+    register(EmaService.getIndicator());
+    register(MacdService.getIndicator());
+    register(BollingerService.getIndicator());
+  }
+
+  /**
+   * Register an indicator, replacing the one registered with the same name.
+   */
+  public static void register(final @NonNull Indicator<?> indicator) {
+    final Indicator<?> replaced = INDICATORS.put(indicator.getName().toUpperCase(Locale.ROOT), indicator);
+    if (Objects.nonNull(replaced) && replaced != indicator) {
+      log.info("Indicator {} replaced by {}", replaced.getKey(), indicator.getKey());
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException when no indicator is registered with the name
+   */
+  public static @NonNull Indicator<?> getIndicator(final @NonNull String name) {
+    final Indicator<?> indicator = INDICATORS.get(name.trim().toUpperCase(Locale.ROOT));
+    if (Objects.isNull(indicator)) {
+      throw new IllegalArgumentException("No indicator " + name + ", registered: " + INDICATORS.keySet());
+    }
+    return indicator;
+  }
+
+  /**
+   * @return The indicators of the run, read when called so the ones registered before are found
+   */
+  public static @NonNull List<Indicator<?>> getIndicators() {
+    return Arrays.stream(System.getProperty("indicator.names", DEFAULT_NAMES).split(",")).filter(name -> !name.isBlank()).<Indicator<?>>map(IndicatorService::getIndicator)
+        .distinct().toList();
+  }
+
+  /**
+   * @return The keys of the indicators of the run with the signal rule, which the values of the candlesticks depend on
+   */
+  public static @NonNull String getKey() {
+    return String.join(",", getIndicators().stream().map(Indicator::getKey).toList()) + "|" + SignalRule.getDefault().name();
+  }
+
+  static <S> @NonNull IndicatorSeries<S> getSeries(final @NonNull Indicator<S> indicator, final @NonNull NumericMode numericMode) {
+    return new IndicatorSeries<>(indicator, indicator.getInitState(numericMode));
+  }
+
+  static void writeSeries(final @NonNull IndicatorSeries<?> indicatorSeries, final @NonNull DataOutput dataOutput) throws IOException {
+    dataOutput.writeUTF(indicatorSeries.getIndicator().getName());
+    dataOutput.writeUTF(indicatorSeries.getIndicator().getKey());
+    indicatorSeries.writeState(dataOutput);
+  }
+
+  /**
+   * @throws IOException when the indicator isn't registered anymore or with other parameters
+   */
+  static @NonNull IndicatorSeries<?> readSeries(final @NonNull DataInput dataInput) throws IOException {
+    final String name = dataInput.readUTF();
+    final String key = dataInput.readUTF();
+    final Indicator<?> indicator = INDICATORS.get(name.toUpperCase(Locale.ROOT));
+    if (Objects.isNull(indicator) || !indicator.getKey().equals(key)) {
+      throw new IOException("Indicator " + key + " isn't registered");
+    }
+    return readSeries(indicator, dataInput);
+  }
+
+  private static <S> @NonNull IndicatorSeries<S> readSeries(final @NonNull Indicator<S> indicator, final @NonNull DataInput dataInput) throws IOException {
+    return new IndicatorSeries<>(indicator, indicator.readState(dataInput));
+  }
+
+  /**
+   * An indicator with the state of one series.
+   */
+  @Getter
+  @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+  class IndicatorSeries<S> {
+
+    private final Indicator<S> indicator;
+    @Getter(AccessLevel.NONE)
+    private final S state;
+
+    @NonNull SignalIndicator onCandleClose(final @NonNull CandlestickRepository repository) {
+      return this.indicator.onCandleClose(this.state, repository);
+    }
+
+    private void writeState(final @NonNull DataOutput dataOutput) throws IOException {
+      this.indicator.writeState(this.state, dataOutput);
+    }
+  }
+}
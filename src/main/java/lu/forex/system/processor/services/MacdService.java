@@ -0,0 +1,90 @@
+package lu.forex.system.processor.services;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.UtilityClass;
+import lu.forex.system.processor.enums.NumericMode;
+import lu.forex.system.processor.enums.SignalIndicator;
+import lu.forex.system.processor.models.Candlestick;
+import lu.forex.system.processor.models.CandlestickRepository;
+import lu.forex.system.processor.services.EmaService.EmaState;
+import lu.forex.system.processor.utils.PriceUtils;
+
+/**
+ * MACD: the difference of the {@value #FAST_PERIOD} and {@value #SLOW_PERIOD} periods averages of the close prices, against its own {@value #SIGNAL_PERIOD}
+ * periods average, the signal line. The MACD above the signal line is {@link SignalIndicator#BULLISH}, below it {@link SignalIndicator#BEARISH}. Computed with
+ * doubles in every {@link NumericMode}.
+ */
+@UtilityClass
+public class MacdService {
+
+  static final String NAME = "MACD";
+  static final String SIGNAL_NAME = "MACD_SIGNAL";
+  static final String HISTOGRAM_NAME = "MACD_HISTOGRAM";
+  static final int FAST_PERIOD = 12;
+  static final int SLOW_PERIOD = 26;
+  static final int SIGNAL_PERIOD = 9;
+
+  public static @NonNull Indicator<MacdState> getIndicator() {
+    return new Indicator<>() {
+
+      @Override
+      public @NonNull String getName() {
+        return NAME;
+      }
+
+      @Override
+      public @NonNull String getKey() {
+        return NAME + "(" + FAST_PERIOD + "," + SLOW_PERIOD + "," + SIGNAL_PERIOD + ")";
+      }
+
+      @Override
+      public @NonNull MacdState getInitState(final @NonNull NumericMode numericMode) {
+        return new MacdState(new EmaState(FAST_PERIOD), new EmaState(SLOW_PERIOD), new EmaState(SIGNAL_PERIOD));
+      }
+
+      @Override
+      public @NonNull SignalIndicator onCandleClose(final @NonNull MacdState state, final @NonNull CandlestickRepository repository) {
+        final Candlestick candlestick = repository.getFirst();
+        final double close = PriceUtils.toDoublePrice(candlestick.getBody().getFixedClose());
+        final boolean fastReady = state.fastEma.add(close);
+        final boolean slowReady = state.slowEma.add(close);
+        if (!fastReady || !slowReady) {
+          return SignalIndicator.NEUTRAL;
+        }
+        final double macd = state.fastEma.getValue() - state.slowEma.getValue();
+        candlestick.setIndicatorValue(NAME, macd);
+        if (!state.signalEma.add(macd)) {
+          return SignalIndicator.NEUTRAL;
+        }
+        final double signalLine = state.signalEma.getValue();
+        candlestick.setIndicatorValue(SIGNAL_NAME, signalLine);
+        candlestick.setIndicatorValue(HISTOGRAM_NAME, macd - signalLine);
+        return macd > signalLine ? SignalIndicator.BULLISH : macd < signalLine ? SignalIndicator.BEARISH : SignalIndicator.NEUTRAL;
+      }
+
+      @Override
+      public void writeState(final @NonNull MacdState state, final @NonNull DataOutput dataOutput) throws IOException {
+        state.fastEma.writeTo(dataOutput);
+        state.slowEma.writeTo(dataOutput);
+        state.signalEma.writeTo(dataOutput);
+      }
+
+      @Override
+      public @NonNull MacdState readState(final @NonNull DataInput dataInput) throws IOException {
+        return new MacdState(EmaState.readFrom(dataInput), EmaState.readFrom(dataInput), EmaState.readFrom(dataInput));
+      }
+    };
+  }
+
+  @RequiredArgsConstructor
+  public class MacdState {
+
+    private final EmaState fastEma;
+    private final EmaState slowEma;
+    private final EmaState signalEma;
+  }
+}
@@ -0,0 +1,319 @@
+package lu.forex.system.processor.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Process-wide counters and latency histograms of a run, written as a JSON and a Prometheus text snapshot. The metrics are created on first use and are
+ * cheap enough for the hot paths: a counter is a {@link LongAdder} and a histogram a fixed array of power of two buckets, from
+ * {@value #MIN_BUCKET_NANOS} ns to about 18 minutes, and an overflow bucket for the longer ones.
+ */
+@Log4j2
+@UtilityClass
+public class MetricsService {
+
+  public static final String JSON_SNAPSHOT = "metrics.json";
+  public static final String PROMETHEUS_SNAPSHOT = "metrics.prom";
+  private static final String PREFIX = "preprocessor_";
+  private static final int MIN_BUCKET_SHIFT = 10;
+  private static final long MIN_BUCKET_NANOS = 1L << MIN_BUCKET_SHIFT;
+  private static final int BUCKETS = 31;
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+  private static final Instant START = Instant.now();
+  private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+  private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+  /**
+   * @param labels Pairs of label name and value
+   */
+  public static @NonNull Counter getCounter(final @NonNull String name, final String @NonNull ... labels) {
+    return COUNTERS.computeIfAbsent(getKey(name, labels), key -> new Counter(name, getLabels(labels, "="), getLabels(labels, ": ")));
+  }
+
+  /**
+   * @param labels Pairs of label name and value
+   */
+  public static @NonNull Histogram getHistogram(final @NonNull String name, final String @NonNull ... labels) {
+    return HISTOGRAMS.computeIfAbsent(getKey(name, labels), key -> new Histogram(name, getLabels(labels, "="), getLabels(labels, ": ")));
+  }
+
+  /**
+   * @return The latency histogram of a stage of the run, {@code stage_duration_seconds{stage="..."}}
+   */
+  public static @NonNull Histogram getStageHistogram(final @NonNull String stage) {
+    return getHistogram("stage_duration_seconds", "stage", stage);
+  }
+
+  /**
+   * Write the snapshot in the folder every period until the reporter is closed, and a last time when it closes.
+   */
+  public static @NonNull Reporter startReporter(final @NonNull File outputFolder, final @NonNull Duration period) {
+    return new Reporter(outputFolder, period);
+  }
+
+  /**
+   * Write the {@value #JSON_SNAPSHOT} and {@value #PROMETHEUS_SNAPSHOT} snapshots of every metric in the folder, each one replaced atomically.
+   */
+  public static void writeSnapshot(final @NonNull File outputFolder) {
+    final List<Counter> counters = COUNTERS.values().stream().sorted(Comparator.comparing(Counter::getName).thenComparing(Counter::getLabels)).toList();
+    final List<Histogram> histograms = HISTOGRAMS.values().stream().sorted(Comparator.comparing(Histogram::getName).thenComparing(Histogram::getLabels)).toList();
+    try {
+      Files.createDirectories(outputFolder.toPath());
+      writeFile(new File(outputFolder, JSON_SNAPSHOT), getJson(counters, histograms));
+      writeFile(new File(outputFolder, PROMETHEUS_SNAPSHOT), getPrometheus(counters, histograms));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void writeFile(final @NonNull File file, final @NonNull String content) throws IOException {
+    final File tmpFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+    try {
+      Files.writeString(tmpFile.toPath(), content, StandardCharsets.UTF_8);
+      Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmpFile.toPath());
+    }
+  }
+
+  private static @NonNull String getJson(final @NonNull List<Counter> counters, final @NonNull List<Histogram> histograms) {
+    final Instant now = Instant.now();
+    final StringBuilder json = new StringBuilder("{\n  \"timestamp\": \"").append(now).append("\",\n  \"uptimeSeconds\": ")
+        .append(getSeconds(Duration.between(START, now).toNanos())).append(",\n  \"counters\": [");
+    for (int i = 0; i < counters.size(); i++) {
+      final Counter counter = counters.get(i);
+      json.append(i == 0 ? "\n" : ",\n").append("    {\"name\": \"").append(escape(counter.getName())).append("\", \"labels\": {").append(counter.getJsonLabels()).append('}')
+          .append(", \"value\": ").append(counter.get()).append('}');
+    }
+    json.append("\n  ],\n  \"histograms\": [");
+    for (int i = 0; i < histograms.size(); i++) {
+      final Histogram histogram = histograms.get(i);
+      json.append(i == 0 ? "\n" : ",\n").append("    {\"name\": \"").append(escape(histogram.getName())).append("\", \"labels\": {")
+          .append(histogram.getJsonLabels()).append("}, \"count\": ").append(histogram.getCount()).append(", \"sumSeconds\": ")
+          .append(getSeconds(histogram.getSumNanos())).append(", \"maxSeconds\": ").append(getSeconds(histogram.getMaxNanos()));
+      for (final double quantile : QUANTILES) {
+        json.append(", \"p").append((int) (quantile * 100)).append("Seconds\": ").append(getSeconds(histogram.getQuantileNanos(quantile)));
+      }
+      json.append('}');
+    }
+    return json.append("\n  ]\n}\n").toString();
+  }
+
+  private static @NonNull String getPrometheus(final @NonNull List<Counter> counters, final @NonNull List<Histogram> histograms) {
+    final StringBuilder prometheus = new StringBuilder();
+    String lastName = null;
+    for (final Counter counter : counters) {
+      final String name = PREFIX + counter.getName();
+      if (!name.equals(lastName)) {
+        prometheus.append("# TYPE ").append(name).append(" counter\n");
+        lastName = name;
+      }
+      prometheus.append(name).append(getPrometheusLabels(counter.getLabels(), null)).append(' ').append(counter.get()).append('\n');
+    }
+    for (final Histogram histogram : histograms) {
+      final String name = PREFIX + histogram.getName();
+      if (!name.equals(lastName)) {
+        prometheus.append("# TYPE ").append(name).append(" histogram\n");
+        lastName = name;
+      }
+      long cumulative = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        cumulative += histogram.buckets.get(i);
+        prometheus.append(name).append("_bucket").append(getPrometheusLabels(histogram.getLabels(), getSeconds(getBucketNanos(i)))).append(' ').append(cumulative).append('\n');
+      }
+      prometheus.append(name).append("_bucket").append(getPrometheusLabels(histogram.getLabels(), "+Inf")).append(' ').append(histogram.getCount()).append('\n');
+      prometheus.append(name).append("_sum").append(getPrometheusLabels(histogram.getLabels(), null)).append(' ').append(getSeconds(histogram.getSumNanos())).append('\n');
+      prometheus.append(name).append("_count").append(getPrometheusLabels(histogram.getLabels(), null)).append(' ').append(histogram.getCount()).append('\n');
+    }
+    return prometheus.toString();
+  }
+
+  private static @NonNull String getKey(final @NonNull String name, final String @NonNull [] labels) {
+    return name + "{" + getLabels(labels, "=") + "}";
+  }
+
+  /**
+   * @param separator {@code =} for the Prometheus labels {@code name="value",...}, {@code : } for the JSON ones without braces
+   */
+  private static @NonNull String getLabels(final String @NonNull [] labels, final @NonNull String separator) {
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("Labels must be pairs of name and value: " + String.join(",", labels));
+    }
+    final boolean json = !"=".equals(separator);
+    return IntStream.range(0, labels.length / 2)
+        .mapToObj(i -> (json ? "\"" + escape(labels[i * 2]) + "\"" : labels[i * 2]) + separator + "\"" + escape(labels[i * 2 + 1]) + "\"")
+        .collect(Collectors.joining(json ? ", " : ","));
+  }
+
+  private static @NonNull String getPrometheusLabels(final @NonNull String labels, final String bucket) {
+    final String bucketLabel = bucket == null ? "" : "le=\"" + bucket + "\"";
+    final String allLabels = labels.isEmpty() ? bucketLabel : (bucketLabel.isEmpty() ? labels : labels + "," + bucketLabel);
+    return allLabels.isEmpty() ? "" : "{" + allLabels + "}";
+  }
+
+  private static @NonNull String escape(final @NonNull String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static @NonNull String getSeconds(final long nanos) {
+    return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+  }
+
+  private static long getBucketNanos(final int bucket) {
+    return MIN_BUCKET_NANOS << bucket;
+  }
+
+  @Getter
+  public class Counter {
+
+    private final String name;
+    private final String labels;
+    private final String jsonLabels;
+    @Getter(AccessLevel.NONE)
+    private final LongAdder value = new LongAdder();
+
+    private Counter(final @NonNull String name, final @NonNull String labels, final @NonNull String jsonLabels) {
+      this.name = name;
+      this.labels = labels;
+      this.jsonLabels = jsonLabels;
+    }
+
+    public void increment() {
+      this.value.increment();
+    }
+
+    public void add(final long amount) {
+      this.value.add(amount);
+    }
+
+    public long get() {
+      return this.value.sum();
+    }
+  }
+
+  /**
+   * Latency histogram, the bucket {@code i} counting the durations up to {@code 2^(i+10)} ns and the last one, {@code +Inf}, the longer durations.
+   */
+  @Getter
+  public class Histogram {
+
+    private final String name;
+    private final String labels;
+    private final String jsonLabels;
+    @Getter(AccessLevel.NONE)
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS + 1);
+    @Getter(AccessLevel.NONE)
+    private final LongAdder count = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private final LongAdder sumNanos = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private Histogram(final @NonNull String name, final @NonNull String labels, final @NonNull String jsonLabels) {
+      this.name = name;
+      this.labels = labels;
+      this.jsonLabels = jsonLabels;
+    }
+
+    public void record(final long nanos) {
+      final int bucket = Math.clamp(64 - Long.numberOfLeadingZeros(Math.max(0L, nanos - 1)) - MIN_BUCKET_SHIFT, 0, BUCKETS);
+      this.buckets.incrementAndGet(bucket);
+      this.count.increment();
+      this.sumNanos.add(nanos);
+      this.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Record the time since the start, from {@link System#nanoTime()}.
+     */
+    public void recordSince(final long startNanos) {
+      this.record(System.nanoTime() - startNanos);
+    }
+
+    public <T> T time(final @NonNull Supplier<T> supplier) {
+      final long start = System.nanoTime();
+      try {
+        return supplier.get();
+      } finally {
+        this.recordSince(start);
+      }
+    }
+
+    public long getCount() {
+      return this.count.sum();
+    }
+
+    public long getSumNanos() {
+      return this.sumNanos.sum();
+    }
+
+    public long getMaxNanos() {
+      return this.maxNanos.get();
+    }
+
+    /**
+     * @return The upper bound of the bucket of the quantile, no more than the maximum
+     */
+    public long getQuantileNanos(final double quantile) {
+      final long rank = (long) Math.ceil(quantile * this.getCount());
+      long cumulative = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        cumulative += this.buckets.get(i);
+        if (cumulative >= rank && cumulative > 0) {
+          return Math.min(getBucketNanos(i), this.getMaxNanos());
+        }
+      }
+      return this.getMaxNanos();
+    }
+  }
+
+  public class Reporter implements AutoCloseable {
+
+    private final File outputFolder;
+    private final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("metrics").factory());
+
+    private Reporter(final @NonNull File outputFolder, final @NonNull Duration period) {
+      this.outputFolder = outputFolder;
+      this.scheduledExecutorService.scheduleAtFixedRate(this::report, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void report() {
+      try {
+        writeSnapshot(this.outputFolder);
+      } catch (RuntimeException e) {
+        log.warn("Metrics snapshot can't be written in {}", this.outputFolder, e);
+      }
+    }
+
+    @Override
+    public void close() {
+      this.scheduledExecutorService.shutdownNow();
+      this.report();
+      log.info("Metrics snapshot written in {}", new File(this.outputFolder, JSON_SNAPSHOT).getAbsolutePath());
+    }
+  }
+}
@@ -0,0 +1,261 @@
+package lu.forex.system.processor.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
+import lu.forex.system.processor.services.MetricsService.Histogram;
+
+/**
+ * Staged producer/consumer pipelines on virtual threads. The stages are linked by bounded queues, so a slow stage blocks the ones before it instead of piling
+ * up their results. The first failing worker cancels the whole pipeline and the failure is thrown when the pipeline closes, the same shutdown-on-failure
+ * contract as a structured task scope.
+ */
+@Log4j2
+@UtilityClass
+public class PipelineService {
+
+  private static final Object END = new Object();
+
+  public static @NonNull Pipeline getPipeline(final @NonNull String name) {
+    return new Pipeline(name);
+  }
+
+  public static @NonNull MemoryBudget getMemoryBudget(final long bytes) {
+    return new MemoryBudget(bytes);
+  }
+
+  public class Pipeline implements AutoCloseable {
+
+    private final String name;
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<StageStatistics> stagesStatistics = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private Pipeline(final @NonNull String name) {
+      this.name = name;
+    }
+
+    /**
+     * Feed the items, in order, to the next stage.
+     */
+    public <T> @NonNull Channel<T> source(final @NonNull String stageName, final @NonNull Collection<T> items, final int capacity) {
+      final Channel<T> output = new Channel<>(capacity);
+      final StageStatistics statistics = this.addStatistics(stageName, 1);
+      this.submit(() -> {
+        for (final T item : items) {
+          statistics.items.incrementAndGet();
+          output.put(item, statistics);
+        }
+        statistics.finish();
+        output.close();
+      });
+      return output;
+    }
+
+    /**
+     * Apply the task to every item of the input with the given number of workers, sending the results to the next stage.
+     */
+    public <I, O> @NonNull Channel<O> stage(final @NonNull String stageName, final int workers, final int capacity, final @NonNull Channel<I> input,
+        final @NonNull Function<I, O> task) {
+      final Channel<O> output = new Channel<>(capacity);
+      final StageStatistics statistics = this.addStatistics(stageName, workers);
+      final AtomicInteger runningWorkers = new AtomicInteger(workers);
+      for (int i = 0; i < workers; i++) {
+        this.submit(() -> {
+          I item;
+          while ((item = input.take(statistics)) != null) {
+            final long start = System.nanoTime();
+            final O result = task.apply(item);
+            statistics.busyNanos.addAndGet(System.nanoTime() - start);
+            statistics.itemDuration.recordSince(start);
+            statistics.items.incrementAndGet();
+            output.put(result, statistics);
+          }
+          if (runningWorkers.decrementAndGet() == 0) {
+            statistics.finish();
+            output.close();
+          }
+        });
+      }
+      return output;
+    }
+
+    /**
+     * Consume every item of the input with the given number of workers, ending the pipeline.
+     */
+    public <I> void sink(final @NonNull String stageName, final int workers, final @NonNull Channel<I> input, final @NonNull Consumer<I> task) {
+      this.stage(stageName, workers, 1, input, item -> {
+        task.accept(item);
+        return END;
+      });
+    }
+
+    private @NonNull StageStatistics addStatistics(final @NonNull String stageName, final int workers) {
+      final StageStatistics statistics = new StageStatistics(this.name, stageName, workers);
+      this.stagesStatistics.add(statistics);
+      return statistics;
+    }
+
+    private void submit(final @NonNull Worker worker) {
+      this.executorService.submit(() -> {
+        try {
+          worker.run();
+        } catch (Throwable e) {
+          if (this.failure.compareAndSet(null, e)) {
+            log.error("Pipeline {} failed, cancelling every stage", this.name, e);
+            this.executorService.shutdownNow();
+          }
+        }
+      });
+    }
+
+    /**
+     * Wait for every stage, log the statistics of each one and throw the first failure.
+     */
+    @Override
+    public void close() {
+      this.executorService.shutdown();
+      try {
+        while (!this.executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+          log.info("Pipeline {} still running", this.name);
+        }
+      } catch (InterruptedException e) {
+        this.executorService.shutdownNow();
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+      this.stagesStatistics.forEach(statistics -> log.info("Pipeline {} stage {}: {}", this.name, statistics.getName(), statistics));
+      if (this.failure.get() != null) {
+        throw new IllegalStateException("Pipeline " + this.name + " failed", this.failure.get());
+      }
+    }
+  }
+
+  /**
+   * Bounded queue between two stages, closed by an end marker that every worker of the next stage passes on to its siblings.
+   */
+  public class Channel<T> {
+
+    private final BlockingQueue<Object> queue;
+
+    private Channel(final int capacity) {
+      this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    private void put(final @NonNull Object item, final @NonNull StageStatistics statistics) throws InterruptedException {
+      if (item != END) {
+        final long start = System.nanoTime();
+        this.queue.put(item);
+        statistics.outputWaitNanos.addAndGet(System.nanoTime() - start);
+      }
+    }
+
+    /**
+     * @return The next item, or null when the previous stage finished
+     */
+    @SuppressWarnings("unchecked")
+    private T take(final @NonNull StageStatistics statistics) throws InterruptedException {
+      final long start = System.nanoTime();
+      final Object item = this.queue.take();
+      statistics.inputWaitNanos.addAndGet(System.nanoTime() - start);
+      if (item == END) {
+        this.queue.put(END);
+        return null;
+      }
+      return (T) item;
+    }
+
+    @SneakyThrows
+    private void close() {
+      this.queue.put(END);
+    }
+  }
+
+  /**
+   * Heap budget shared by the units of work in flight, counted in blocks of {@value #BLOCK_BYTES} bytes. A unit bigger than the whole budget takes all of it and
+   * runs alone.
+   */
+  public class MemoryBudget {
+
+    private static final long BLOCK_BYTES = 1L << 20;
+
+    @Getter
+    private final int blocks;
+    private final Semaphore semaphore;
+
+    private MemoryBudget(final long bytes) {
+      this.blocks = (int) Math.clamp(bytes / BLOCK_BYTES, 1L, Integer.MAX_VALUE);
+      this.semaphore = new Semaphore(this.blocks, true);
+    }
+
+    /**
+     * Wait until the estimated bytes fit in the budget.
+     *
+     * @return The blocks taken, to give back with {@link #release(int)}
+     */
+    @SneakyThrows
+    public int acquire(final long bytes) {
+      final int acquiredBlocks = (int) Math.clamp((bytes + BLOCK_BYTES - 1) / BLOCK_BYTES, 1L, this.blocks);
+      this.semaphore.acquire(acquiredBlocks);
+      return acquiredBlocks;
+    }
+
+    public void release(final int acquiredBlocks) {
+      this.semaphore.release(acquiredBlocks);
+    }
+  }
+
+  @FunctionalInterface
+  private interface Worker {
+
+    void run() throws InterruptedException;
+  }
+
+  @Getter
+  private class StageStatistics {
+
+    private final String name;
+    private final int workers;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicLong inputWaitNanos = new AtomicLong();
+    private final AtomicLong outputWaitNanos = new AtomicLong();
+    private final Histogram itemDuration;
+    private volatile long endNanos;
+
+    private StageStatistics(final @NonNull String pipelineName, final @NonNull String name, final int workers) {
+      this.name = name;
+      this.workers = workers;
+      this.itemDuration = MetricsService.getHistogram("pipeline_item_duration_seconds", "pipeline", pipelineName, "stage", name);
+    }
+
+    private void finish() {
+      this.endNanos = System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+      final double seconds = Math.max(1L, (this.endNanos == 0L ? System.nanoTime() : this.endNanos) - this.startNanos) / 1e9;
+      return String.format("%d items with %d workers, %.3f items/s, busy %d ms, waiting input %d ms, waiting output %d ms", this.items.get(), this.workers,
+          this.items.get() / seconds, TimeUnit.NANOSECONDS.toMillis(this.busyNanos.get()), TimeUnit.NANOSECONDS.toMillis(this.inputWaitNanos.get()),
+          TimeUnit.NANOSECONDS.toMillis(this.outputWaitNanos.get()));
+    }
+  }
+}
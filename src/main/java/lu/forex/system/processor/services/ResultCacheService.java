@@ -0,0 +1,307 @@
+package lu.forex.system.processor.services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
+import lu.forex.system.processor.enums.NumericMode;
+import lu.forex.system.processor.enums.Symbol;
+import lu.forex.system.processor.enums.TimeFrame;
+import lu.forex.system.processor.models.CandlestickSeries;
+import lu.forex.system.processor.models.Trade;
+import lu.forex.system.processor.services.TradeService.RangerProfit;
+import lu.forex.system.processor.utils.DataUtils;
+
+/**
+ * On-disk cache of the results of a tick file by timeframe: the not neutral candlesticks the pre-trades come from and the trades. The entries are named by a
+ * SHA-256 of the content of the tick file and of every parameter the result depends on, so a changed file or parameter misses and an unchanged one is read
+ * back instead of computed.
+ * <p>
+ * The cache lives next to the tick files and is bounded by {@code -Dresult.cache.maxMb} (0 disables it), evicting the least recently used entries.
+ */
+@Log4j2
+@UtilityClass
+public class ResultCacheService {
+
+  private static final String CACHE_FOLDER = ".results";
+  private static final String SERIES_EXTENSION = ".series";
+  private static final String TRADES_EXTENSION = ".trades";
+  private static final String HASH_EXTENSION = ".hash";
+  private static final int VERSION = 3;
+  private static final int BUFFER_SIZE = 1 << 20;
+  private static final long MAX_SIZE = Long.getLong("result.cache.maxMb", 2048L) << 20;
+  private static final Map<String, String> CONTENT_HASHES = new ConcurrentHashMap<>();
+  private static final ReentrantLock EVICTION_LOCK = new ReentrantLock();
+
+  public static boolean isEnabled() {
+    return MAX_SIZE > 0;
+  }
+
+  /**
+   * @return The not neutral candlesticks of every timeframe, or null when one of them is not cached or the cache is disabled
+   */
+  public static Map<TimeFrame, CandlestickSeries> getCandlestickSeries(final @NonNull File inputFile, final @NonNull Collection<TimeFrame> timeFrames, final boolean offHeap) {
+    if (!isEnabled()) {
+      return null;
+    }
+    final Map<TimeFrame, CandlestickSeries> timeFrameSeriesMap = new EnumMap<>(TimeFrame.class);
+    for (final TimeFrame timeFrame : timeFrames) {
+      final CandlestickSeries candlestickSeries = read(getEntryFile(inputFile, getSeriesKey(timeFrame), SERIES_EXTENSION),
+          dataInput -> CandlestickSeries.readFrom(dataInput, offHeap));
+      if (Objects.isNull(candlestickSeries)) {
+        return null;
+      }
+      timeFrameSeriesMap.put(timeFrame, candlestickSeries);
+    }
+    log.info("Candlesticks of {} at timeframes {} read from the result cache", inputFile.getName(), timeFrames);
+    return timeFrameSeriesMap;
+  }
+
+  public static void putCandlestickSeries(final @NonNull File inputFile, final @NonNull Map<TimeFrame, CandlestickSeries> timeFrameSeriesMap) {
+    if (!isEnabled()) {
+      return;
+    }
+    timeFrameSeriesMap.forEach((timeFrame, candlestickSeries) -> write(inputFile, getEntryFile(inputFile, getSeriesKey(timeFrame), SERIES_EXTENSION), candlestickSeries::writeTo));
+  }
+
+  /**
+   * @return The trades of every timeframe, or null when one of them is not cached or the cache is disabled
+   */
+  public static Map<TimeFrame, List<Trade>> getTrades(final @NonNull File inputFile, final @NonNull Symbol symbol, final @NonNull Collection<TimeFrame> timeFrames,
+      final @NonNull List<RangerProfit> rangerProfits) {
+    if (!isEnabled()) {
+      return null;
+    }
+    final Map<TimeFrame, List<Trade>> timeFrameTradesMap = new EnumMap<>(TimeFrame.class);
+    for (final TimeFrame timeFrame : timeFrames) {
+      final List<Trade> trades = read(getEntryFile(inputFile, getTradesKey(symbol, timeFrame, rangerProfits), TRADES_EXTENSION), ResultCacheService::readTrades);
+      if (Objects.isNull(trades)) {
+        return null;
+      }
+      timeFrameTradesMap.put(timeFrame, trades);
+    }
+    log.info("Trades of {} at timeframes {} read from the result cache", inputFile.getName(), timeFrames);
+    return timeFrameTradesMap;
+  }
+
+  public static void putTrades(final @NonNull File inputFile, final @NonNull Symbol symbol, final @NonNull Map<TimeFrame, List<Trade>> timeFrameTradesMap,
+      final @NonNull List<RangerProfit> rangerProfits) {
+    if (!isEnabled()) {
+      return;
+    }
+    timeFrameTradesMap.forEach((timeFrame, trades) -> write(inputFile, getEntryFile(inputFile, getTradesKey(symbol, timeFrame, rangerProfits), TRADES_EXTENSION),
+        dataOutput -> writeTrades(trades, dataOutput)));
+  }
+
+  private static @NonNull String getSeriesKey(final @NonNull TimeFrame timeFrame) {
+    return String.join("|", "series", timeFrame.name(), String.valueOf(timeFrame.getTimeValue()), timeFrame.getFrame().name(), String.valueOf(timeFrame.getSlotTimeH()),
+        "adx", String.valueOf(AdxService.PERIOD), AdxService.TENDENCY_LINE.toPlainString(), "rsi", String.valueOf(RsiService.PERIOD), RsiService.OVERBOUGHT.toPlainString(),
+        RsiService.OVERSOLD.toPlainString(), "repository", String.valueOf(CandlestickService.REPOSITORY_SIZE), "numeric", NumericMode.getDefault().name(),
+        "indicators", IndicatorService.getKey());
+  }
+
+  private static @NonNull String getTradesKey(final @NonNull Symbol symbol, final @NonNull TimeFrame timeFrame, final @NonNull List<RangerProfit> rangerProfits) {
+    final List<String> keys = new ArrayList<>(List.of(getSeriesKey(timeFrame), "trades", symbol.name(), symbol.getSwapLong().toPlainString(), symbol.getSwapShort().toPlainString(),
+        symbol.getPip().toPlainString(), TradeService.TP_TARGET.toPlainString()));
+    rangerProfits.forEach(rangerProfit -> keys.add(rangerProfit.getTakeProfit().toPlainString() + "/" + rangerProfit.getStopLoss().toPlainString()));
+    return String.join("|", keys);
+  }
+
+  private static @NonNull File getEntryFile(final @NonNull File inputFile, final @NonNull String key, final @NonNull String extension) {
+    final MessageDigest messageDigest = getMessageDigest();
+    messageDigest.update((VERSION + "|" + getContentHash(inputFile) + "|" + key).getBytes(StandardCharsets.UTF_8));
+    return new File(getCacheFolder(inputFile), HexFormat.of().formatHex(messageDigest.digest()).concat(extension));
+  }
+
+  private static @NonNull File getCacheFolder(final @NonNull File inputFile) {
+    return new File(inputFile.getAbsoluteFile().getParentFile(), CACHE_FOLDER);
+  }
+
+  /**
+   * @return The SHA-256 of the content of the file, hashed once by size and last modified time and kept in a sidecar of the cache across runs
+   */
+  private static @NonNull String getContentHash(final @NonNull File inputFile) {
+    return CONTENT_HASHES.computeIfAbsent(inputFile.getAbsolutePath() + "|" + inputFile.length() + "|" + inputFile.lastModified(), key -> {
+      final File hashFile = new File(getCacheFolder(inputFile), inputFile.getName() + HASH_EXTENSION);
+      final String storedHash = readContentHash(inputFile, hashFile);
+      if (Objects.nonNull(storedHash)) {
+        return storedHash;
+      }
+      final long length = inputFile.length();
+      final long lastModified = inputFile.lastModified();
+      final MessageDigest messageDigest = getMessageDigest();
+      try (final FileChannel fileChannel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+        final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        while (fileChannel.read(byteBuffer) >= 0) {
+          messageDigest.update(byteBuffer.flip());
+          byteBuffer.clear();
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      final String contentHash = HexFormat.of().formatHex(messageDigest.digest());
+      if (isEnabled()) {
+        write(inputFile, hashFile, dataOutput -> {
+          dataOutput.writeInt(VERSION);
+          dataOutput.writeLong(length);
+          dataOutput.writeLong(lastModified);
+          dataOutput.writeUTF(contentHash);
+        });
+      }
+      return contentHash;
+    });
+  }
+
+  /**
+   * @return The hash of the sidecar, or null when it is missing or from another version, size or last modified time of the file
+   */
+  private static String readContentHash(final @NonNull File inputFile, final @NonNull File hashFile) {
+    return read(hashFile, dataInput -> dataInput.readInt() == VERSION && dataInput.readLong() == inputFile.length() && dataInput.readLong() == inputFile.lastModified()
+        ? dataInput.readUTF() : null);
+  }
+
+  @SneakyThrows
+  private static @NonNull MessageDigest getMessageDigest() {
+    return MessageDigest.getInstance("SHA-256");
+  }
+
+  /**
+   * @return The entry, marked as recently used, or null when it is missing or can't be read
+   */
+  private static <T> T read(final @NonNull File entryFile, final @NonNull EntryReader<T> entryReader) {
+    if (!isEnabled() || !entryFile.exists()) {
+      return null;
+    }
+    try (final DataInputStream dataInput = new DataInputStream(new BufferedInputStream(new FileInputStream(entryFile)))) {
+      final T entry = entryReader.read(dataInput);
+      if (!entryFile.setLastModified(System.currentTimeMillis())) {
+        log.debug("Result cache entry {} not marked as used", entryFile.getName());
+      }
+      return entry;
+    } catch (IOException e) {
+      log.warn("Result cache entry {} can't be read", entryFile.getName(), e);
+      return null;
+    }
+  }
+
+  private static void write(final @NonNull File inputFile, final @NonNull File entryFile, final @NonNull EntryWriter entryWriter) {
+    if (!isEnabled()) {
+      return;
+    }
+    try {
+      Files.createDirectories(entryFile.getParentFile().toPath());
+      final File tmpFile = File.createTempFile(entryFile.getName(), ".tmp", entryFile.getParentFile());
+      try {
+        try (final DataOutputStream dataOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+          entryWriter.write(dataOutput);
+        }
+        Files.move(tmpFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tmpFile.toPath());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    evict(getCacheFolder(inputFile));
+  }
+
+  /**
+   * Delete the least recently used entries until the cache fits in its maximum size.
+   */
+  private static void evict(final @NonNull File cacheFolder) {
+    EVICTION_LOCK.lock();
+    try {
+      final File[] entryFiles = cacheFolder.listFiles((dir, name) -> name.endsWith(SERIES_EXTENSION) || name.endsWith(TRADES_EXTENSION));
+      if (Objects.isNull(entryFiles)) {
+        return;
+      }
+      long size = Arrays.stream(entryFiles).mapToLong(File::length).sum();
+      final File[] leastRecentlyUsed = Arrays.stream(entryFiles).sorted(Comparator.comparingLong(File::lastModified)).toArray(File[]::new);
+      for (int i = 0; i < leastRecentlyUsed.length && size > MAX_SIZE; i++) {
+        final long length = leastRecentlyUsed[i].length();
+        try {
+          Files.deleteIfExists(leastRecentlyUsed[i].toPath());
+          size -= length;
+          log.info("Result cache entry {} evicted", leastRecentlyUsed[i].getName());
+        } catch (IOException e) {
+          log.warn("Result cache entry {} can't be evicted", leastRecentlyUsed[i].getName(), e);
+        }
+      }
+    } finally {
+      EVICTION_LOCK.unlock();
+    }
+  }
+
+  private static void writeTrades(final @NonNull List<Trade> trades, final @NonNull DataOutputStream dataOutput) throws IOException {
+    dataOutput.writeInt(trades.size());
+    for (final Trade trade : trades) {
+      DataUtils.writeDecimal(trade.getStopLoss(), dataOutput);
+      DataUtils.writeDecimal(trade.getTakeProfit(), dataOutput);
+      dataOutput.writeByte(trade.getSlotWeek().ordinal());
+      dataOutput.writeInt(trade.getSlotStart());
+      dataOutput.writeLong(trade.getOrdersTotal());
+      dataOutput.writeLong(trade.getTakeProfitTotal());
+      dataOutput.writeLong(trade.getStopLossTotal());
+      DataUtils.writeDecimal(trade.getHitPercentage(), dataOutput);
+      DataUtils.writeDecimal(trade.getProfitTotal(), dataOutput);
+    }
+  }
+
+  private static @NonNull List<Trade> readTrades(final @NonNull DataInputStream dataInput) throws IOException {
+    final int size = dataInput.readInt();
+    final List<Trade> trades = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      final BigDecimal stopLoss = DataUtils.readDecimal(dataInput);
+      final BigDecimal takeProfit = DataUtils.readDecimal(dataInput);
+      final DayOfWeek slotWeek = DayOfWeek.values()[dataInput.readByte()];
+      final int slotStart = dataInput.readInt();
+      final long ordersTotal = dataInput.readLong();
+      final long takeProfitTotal = dataInput.readLong();
+      final long stopLossTotal = dataInput.readLong();
+      final BigDecimal hitPercentage = DataUtils.readDecimal(dataInput);
+      final BigDecimal profitTotal = DataUtils.readDecimal(dataInput);
+      trades.add(new Trade(stopLoss, takeProfit, slotWeek, slotStart, ordersTotal, takeProfitTotal, stopLossTotal, hitPercentage, profitTotal));
+    }
+    return trades;
+  }
+
+  @FunctionalInterface
+  private interface EntryReader<T> {
+
+    T read(final @NonNull DataInputStream dataInput) throws IOException;
+  }
+
+  @FunctionalInterface
+  private interface EntryWriter {
+
+    void write(final @NonNull DataOutputStream dataOutput) throws IOException;
+  }
+}
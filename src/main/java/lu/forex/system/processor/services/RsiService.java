@@ -1,58 +1,156 @@
 package lu.forex.system.processor.services;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.Objects;
 import java.util.stream.IntStream;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
+import lu.forex.system.processor.enums.NumericMode;
 import lu.forex.system.processor.enums.SignalIndicator;
-import lu.forex.system.processor.models.Candlestick;
+import lu.forex.system.processor.models.CandlestickRepository;
 import lu.forex.system.processor.models.RelativeStrengthIndex;
 import lu.forex.system.processor.utils.MathUtils;
+import lu.forex.system.processor.utils.PriceUtils;
 
 @UtilityClass
 public class RsiService {
 
-  private static final int PERIOD = 14;
-  private static final BigDecimal OVERBOUGHT = BigDecimal.valueOf(50.0);
-  private static final BigDecimal OVERSOLD = BigDecimal.valueOf(50.0);
-
-  public static void calculate(final @NonNull Candlestick @NonNull [] candlesticks) {
-    final RelativeStrengthIndex[] technicalIndicators = IntStream.range(0, candlesticks.length < PERIOD ? 1 : PERIOD).mapToObj(i -> candlesticks[i].getRsi())
-        .toArray(RelativeStrengthIndex[]::new);
-
-    if (candlesticks.length >= 2) {
-      final BigDecimal currentClosePrice = candlesticks[0].getBody().getClose();
-      final BigDecimal lastClosePrice = candlesticks[1].getBody().getClose();
-      final BigDecimal gain = currentClosePrice.compareTo(lastClosePrice) > 0 ? currentClosePrice.subtract(lastClosePrice) : BigDecimal.ZERO;
-      technicalIndicators[0].setKeyGain(gain);
-      final BigDecimal loss = currentClosePrice.compareTo(lastClosePrice) < 0 ? lastClosePrice.subtract(currentClosePrice) : BigDecimal.ZERO;
-      technicalIndicators[0].setKeyLoss(loss);
-
-      if (technicalIndicators.length == PERIOD && IntStream.range(0, PERIOD)
-          .noneMatch(i -> Objects.isNull(technicalIndicators[i].getKeyGain()) || Objects.isNull(technicalIndicators[i].getKeyLoss()))) {
-        if (Objects.isNull(technicalIndicators[1].getKeyAverageGain())) {
-          final BigDecimal averageGain = MathUtils.getMed(IntStream.range(0, PERIOD).mapToObj(i -> technicalIndicators[i].getKeyGain()).toList());
-          technicalIndicators[0].setKeyAverageGain(averageGain);
-          final BigDecimal averageLoss = MathUtils.getMed(IntStream.range(0, PERIOD).mapToObj(i -> technicalIndicators[i].getKeyLoss()).toList());
-          technicalIndicators[0].setKeyAverageLoss(averageLoss);
+  static final int PERIOD = 14;
+  static final BigDecimal OVERBOUGHT = BigDecimal.valueOf(50.0);
+  static final BigDecimal OVERSOLD = BigDecimal.valueOf(50.0);
+  private static final double OVERBOUGHT_VALUE = OVERBOUGHT.doubleValue();
+  private static final double OVERSOLD_VALUE = OVERSOLD.doubleValue();
+  // without losses in the period: 100 with gains, 50 when the prices didn't move
+  private static final BigDecimal RSI_NO_LOSS = BigDecimal.valueOf(100);
+  private static final BigDecimal RSI_FLAT = BigDecimal.valueOf(50);
+  static final String NAME = "RSI";
+  // the previous values are read from the repository, the state is only the numeric mode
+  private static final Indicator<NumericMode> INDICATOR = new Indicator<>() {
+
+    @Override
+    public @NonNull String getName() {
+      return NAME;
+    }
+
+    @Override
+    public @NonNull String getKey() {
+      return NAME + "(" + PERIOD + "," + OVERBOUGHT.toPlainString() + "," + OVERSOLD.toPlainString() + ")";
+    }
+
+    @Override
+    public @NonNull NumericMode getInitState(final @NonNull NumericMode numericMode) {
+      return numericMode;
+    }
+
+    @Override
+    public @NonNull SignalIndicator onCandleClose(final @NonNull NumericMode state, final @NonNull CandlestickRepository repository) {
+      calculate(repository, state);
+      return repository.getFirst().getRsi().getSignal();
+    }
+
+    @Override
+    public void writeState(final @NonNull NumericMode state, final @NonNull DataOutput dataOutput) throws IOException {
+      dataOutput.writeUTF(state.name());
+    }
+
+    @Override
+    public @NonNull NumericMode readState(final @NonNull DataInput dataInput) throws IOException {
+      return NumericMode.valueOf(dataInput.readUTF());
+    }
+  };
+
+  public static @NonNull Indicator<NumericMode> getIndicator() {
+    return INDICATOR;
+  }
+
+  /**
+   * Calculate the RSI of the newest candlestick of the repository with the default {@link NumericMode}.
+   */
+  public static void calculate(final @NonNull CandlestickRepository repository) {
+    calculate(repository, NumericMode.getDefault());
+  }
+
+  /**
+   * Calculate the RSI of the newest candlestick of the repository, reading the previous ones in place.
+   */
+  public static void calculate(final @NonNull CandlestickRepository repository, final @NonNull NumericMode numericMode) {
+    final RelativeStrengthIndex technicalIndicator = repository.getFirst().getRsi();
+
+    if (repository.size() >= 2) {
+      final long currentClosePrice = repository.get(0).getBody().getFixedClose();
+      final long lastClosePrice = repository.get(1).getBody().getFixedClose();
+      final BigDecimal gain = currentClosePrice > lastClosePrice ? PriceUtils.toPrice(currentClosePrice - lastClosePrice) : BigDecimal.ZERO;
+      technicalIndicator.setKeyGain(gain);
+      final BigDecimal loss = currentClosePrice < lastClosePrice ? PriceUtils.toPrice(lastClosePrice - currentClosePrice) : BigDecimal.ZERO;
+      technicalIndicator.setKeyLoss(loss);
+
+      if (repository.size() >= PERIOD && IntStream.range(0, PERIOD)
+          .noneMatch(i -> Objects.isNull(repository.get(i).getRsi().getKeyGain()) || Objects.isNull(repository.get(i).getRsi().getKeyLoss()))) {
+        final RelativeStrengthIndex lastTechnicalIndicator = repository.get(1).getRsi();
+        if (NumericMode.FAST.equals(numericMode)) {
+          calculateFast(repository, lastTechnicalIndicator);
+          return;
+        }
+        if (Objects.isNull(lastTechnicalIndicator.getKeyAverageGain())) {
+          final BigDecimal averageGain = MathUtils.getMed(IntStream.range(0, PERIOD).mapToObj(i -> repository.get(i).getRsi().getKeyGain()).toList());
+          technicalIndicator.setKeyAverageGain(averageGain);
+          final BigDecimal averageLoss = MathUtils.getMed(IntStream.range(0, PERIOD).mapToObj(i -> repository.get(i).getRsi().getKeyLoss()).toList());
+          technicalIndicator.setKeyAverageLoss(averageLoss);
         } else {
-          final BigDecimal averageGain = ((technicalIndicators[1].getKeyAverageGain().multiply(BigDecimal.valueOf(PERIOD - 1L))).add(gain)).divide(BigDecimal.valueOf(PERIOD),
+          final BigDecimal averageGain = ((lastTechnicalIndicator.getKeyAverageGain().multiply(BigDecimal.valueOf(PERIOD - 1L))).add(gain)).divide(BigDecimal.valueOf(PERIOD),
               MathUtils.SCALE, MathUtils.ROUNDING_MODE);
-          technicalIndicators[0].setKeyAverageGain(averageGain);
-          final BigDecimal averageLoss = ((technicalIndicators[1].getKeyAverageLoss().multiply(BigDecimal.valueOf(PERIOD - 1L))).add(loss)).divide(BigDecimal.valueOf(PERIOD),
+          technicalIndicator.setKeyAverageGain(averageGain);
+          final BigDecimal averageLoss = ((lastTechnicalIndicator.getKeyAverageLoss().multiply(BigDecimal.valueOf(PERIOD - 1L))).add(loss)).divide(BigDecimal.valueOf(PERIOD),
               MathUtils.SCALE, MathUtils.ROUNDING_MODE);
-          technicalIndicators[0].setKeyAverageLoss(averageLoss);
+          technicalIndicator.setKeyAverageLoss(averageLoss);
         }
-        final BigDecimal rs = technicalIndicators[0].getKeyAverageGain().divide(technicalIndicators[0].getKeyAverageLoss(), MathUtils.SCALE, MathUtils.ROUNDING_MODE);
-        final BigDecimal rsi = BigDecimal.valueOf(100).subtract(BigDecimal.valueOf(100).divide(BigDecimal.ONE.add(rs), MathUtils.SCALE, MathUtils.ROUNDING_MODE));
-        technicalIndicators[0].setKeyRsi(rsi);
+        final BigDecimal rsi;
+        if (technicalIndicator.getKeyAverageLoss().signum() == 0) {
+          rsi = technicalIndicator.getKeyAverageGain().signum() == 0 ? RSI_FLAT : RSI_NO_LOSS;
+        } else {
+          final BigDecimal rs = technicalIndicator.getKeyAverageGain().divide(technicalIndicator.getKeyAverageLoss(), MathUtils.SCALE, MathUtils.ROUNDING_MODE);
+          rsi = BigDecimal.valueOf(100).subtract(BigDecimal.valueOf(100).divide(BigDecimal.ONE.add(rs), MathUtils.SCALE, MathUtils.ROUNDING_MODE));
+        }
+        technicalIndicator.setKeyRsi(rsi);
         if (rsi.compareTo(OVERBOUGHT) > 0) {
-          technicalIndicators[0].setSignal(SignalIndicator.BEARISH);
+          technicalIndicator.setSignal(SignalIndicator.BEARISH);
         } else if (rsi.compareTo(OVERSOLD) < 0) {
-          technicalIndicators[0].setSignal(SignalIndicator.BULLISH);
+          technicalIndicator.setSignal(SignalIndicator.BULLISH);
         }
       }
     }
   }
+
+  /**
+   * The average gain and loss and the RSI of {@link #calculate(CandlestickRepository, NumericMode)} with doubles, from the exact gains and losses.
+   */
+  private static void calculateFast(final @NonNull CandlestickRepository repository, final @NonNull RelativeStrengthIndex lastTechnicalIndicator) {
+    final RelativeStrengthIndex technicalIndicator = repository.getFirst().getRsi();
+    final double averageGain;
+    final double averageLoss;
+    if (Objects.isNull(lastTechnicalIndicator.getKeyAverageGain())) {
+      averageGain = IntStream.range(0, PERIOD).mapToDouble(i -> repository.get(i).getRsi().getKeyGain().doubleValue()).sum() / PERIOD;
+      averageLoss = IntStream.range(0, PERIOD).mapToDouble(i -> repository.get(i).getRsi().getKeyLoss().doubleValue()).sum() / PERIOD;
+    } else {
+      averageGain = (lastTechnicalIndicator.getKeyAverageGain().doubleValue() * (PERIOD - 1) + technicalIndicator.getKeyGain().doubleValue()) / PERIOD;
+      averageLoss = (lastTechnicalIndicator.getKeyAverageLoss().doubleValue() * (PERIOD - 1) + technicalIndicator.getKeyLoss().doubleValue()) / PERIOD;
+    }
+    technicalIndicator.setKeyAverageGain(BigDecimal.valueOf(averageGain));
+    technicalIndicator.setKeyAverageLoss(BigDecimal.valueOf(averageLoss));
+    final double rsi;
+    if (averageLoss == 0.0) {
+      rsi = averageGain == 0.0 ? RSI_FLAT.doubleValue() : RSI_NO_LOSS.doubleValue();
+    } else {
+      rsi = 100.0 - 100.0 / (1.0 + averageGain / averageLoss);
+    }
+    technicalIndicator.setKeyRsi(BigDecimal.valueOf(rsi));
+    if (rsi > OVERBOUGHT_VALUE) {
+      technicalIndicator.setSignal(SignalIndicator.BEARISH);
+    } else if (rsi < OVERSOLD_VALUE) {
+      technicalIndicator.setSignal(SignalIndicator.BULLISH);
+    }
+  }
 }
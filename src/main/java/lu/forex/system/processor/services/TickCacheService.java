@@ -0,0 +1,332 @@
+package lu.forex.system.processor.services;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
+import lu.forex.system.processor.models.Tick;
+import lu.forex.system.processor.utils.DateTimeUtils;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Binary columnar copy of the tab-separated tick exports. The text file is parsed only once, the following reads are memory-mapped. When new lines are
+ * appended to the export, only they are parsed and added to the cache.
+ * <p>
+ * Layout: a {@value #HEADER_SIZE} bytes header followed by the timestamp column (epoch milliseconds), the fixed bid column and the fixed ask column, all 8
+ * bytes per tick. The header keeps the size, the last modified time and a checksum of the last {@value #TAIL_SIZE} bytes of the parsed export, to recognize
+ * an export that only grew.
+ * <p>
+ * The timestamp column is sorted, so it is also the index to seek into the ticks by time, see {@link #getTicks(File, LocalDateTime)}.
+ */
+@Log4j2
+@UtilityClass
+public class TickCacheService {
+
+  private static final String CACHE_FOLDER = ".ticks";
+  private static final String CACHE_EXTENSION = ".ticks";
+  private static final int MAGIC = 0x5449434B;
+  private static final int VERSION = 3;
+  private static final int HEADER_SIZE = 64;
+  private static final int TAIL_SIZE = 1 << 16;
+  private static final int SEGMENT_BITS = 27;
+  private static final long SEGMENT_TICKS = 1L << SEGMENT_BITS;
+  private static final Map<String, ReentrantLock> CACHE_LOCKS = new ConcurrentHashMap<>();
+
+  /**
+   * @return The ticks Pair ( CURRENT | LAST ) read from the binary cache of the input file
+   */
+  public static @NonNull Stream<Pair<Tick, Tick>> getTicks(final @NonNull File inputFile) {
+    return getTicks(getTickCache(inputFile));
+  }
+
+  /**
+   * @return The ticks Pair ( CURRENT | LAST )
+   */
+  public static @NonNull Stream<Pair<Tick, Tick>> getTicks(final @NonNull TickCache tickCache) {
+    return getTicks(tickCache, 0);
+  }
+
+  /**
+   * @return The ticks Pair ( CURRENT | LAST ) read from the binary cache of the input file, from the first tick at or after the time
+   */
+  public static @NonNull Stream<Pair<Tick, Tick>> getTicks(final @NonNull File inputFile, final @NonNull LocalDateTime from) {
+    final TickCache tickCache = getTickCache(inputFile);
+    final long fromIndex = tickCache.getFirstTick(DateTimeUtils.toEpochMilli(from));
+    log.info("Reading {} from {}, skipping {} ticks", inputFile.getName(), from, fromIndex);
+    return getTicks(tickCache, fromIndex);
+  }
+
+  /**
+   * @param from The index of the first tick, its LAST being the tick before it
+   * @return The ticks Pair ( CURRENT | LAST )
+   */
+  public static @NonNull Stream<Pair<Tick, Tick>> getTicks(final @NonNull TickCache tickCache, final long from) {
+    final AtomicReference<Tick> lastTick = new AtomicReference<>(from > 0 ? tickCache.getTick(from - 1) : TickService.getInitTick());
+    return LongStream.range(from, tickCache.getSize()).mapToObj(i -> {
+      final Tick currentTick = tickCache.getTick(i);
+      return Pair.of(currentTick, lastTick.getAndSet(currentTick));
+    });
+  }
+
+  /**
+   * Get the memory-mapped cache of the input file, converting the text file when the cache is missing or older than the input, or only the appended lines
+   * when the input grew.
+   */
+  public static @NonNull TickCache getTickCache(final @NonNull File inputFile) {
+    final File cacheFile = getCacheFile(inputFile);
+    final ReentrantLock lock = CACHE_LOCKS.computeIfAbsent(cacheFile.getAbsolutePath(), key -> new ReentrantLock());
+    lock.lock();
+    try {
+      if (!isCacheValid(inputFile, cacheFile)) {
+        if (isCacheAppendable(inputFile, cacheFile)) {
+          appendCache(inputFile, cacheFile);
+        } else {
+          writeCache(inputFile, cacheFile);
+        }
+      }
+      return new TickCache(cacheFile);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static @NonNull File getCacheFile(final @NonNull File inputFile) {
+    return new File(new File(inputFile.getAbsoluteFile().getParentFile(), CACHE_FOLDER), inputFile.getName().concat(CACHE_EXTENSION));
+  }
+
+  private static boolean isCacheValid(final @NonNull File inputFile, final @NonNull File cacheFile) throws IOException {
+    final ByteBuffer header = readHeader(cacheFile);
+    return Objects.nonNull(header) && header.getLong() == inputFile.length() && header.getLong() == inputFile.lastModified();
+  }
+
+  /**
+   * @return True when the input only has new lines after the ones of the cache: bigger, with the same bytes at the end of the cached size, ending a line
+   */
+  private static boolean isCacheAppendable(final @NonNull File inputFile, final @NonNull File cacheFile) throws IOException {
+    final ByteBuffer header = readHeader(cacheFile);
+    if (Objects.isNull(header)) {
+      return false;
+    }
+    final long cachedLength = header.getLong();
+    header.getLong();
+    header.getLong();
+    final long cachedTailChecksum = header.getLong();
+    return isAppended(inputFile, cachedLength, cachedTailChecksum);
+  }
+
+  /**
+   * @return True when the input is bigger than the length read before, with the same bytes at its end, ending a line
+   */
+  private static boolean isAppended(final @NonNull File inputFile, final long length, final long tailChecksum) throws IOException {
+    try (final FileChannel inputChannel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+      if (length <= 0 || inputChannel.size() <= length) {
+        return false;
+      }
+      final ByteBuffer lastByte = ByteBuffer.allocate(1);
+      inputChannel.read(lastByte, length - 1);
+      return lastByte.get(0) == '\n' && getTailChecksum(inputChannel, length) == tailChecksum;
+    }
+  }
+
+  /**
+   * @return The header positioned after the magic number and the version, or null when the cache is missing or from another version
+   */
+  private static ByteBuffer readHeader(final @NonNull File cacheFile) throws IOException {
+    if (!cacheFile.exists() || cacheFile.length() < HEADER_SIZE) {
+      return null;
+    }
+    try (final FileChannel fileChannel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      fileChannel.read(header, 0);
+      header.flip();
+      return header.getInt() == MAGIC && header.getInt() == VERSION ? header : null;
+    }
+  }
+
+  private static long getTailChecksum(final @NonNull FileChannel inputChannel, final long length) throws IOException {
+    final ByteBuffer tail = ByteBuffer.allocate((int) Math.min(TAIL_SIZE, length));
+    while (tail.hasRemaining() && inputChannel.read(tail, length - tail.capacity() + tail.position()) > 0) {
+      // read until the tail is full
+    }
+    final CRC32 crc32 = new CRC32();
+    crc32.update(tail.flip());
+    return crc32.getValue();
+  }
+
+  private static void writeCache(final @NonNull File inputFile, final @NonNull File cacheFile) throws IOException {
+    log.info("Writing tick cache {} from {}", cacheFile.getName(), inputFile.getName());
+    writeCache(inputFile, cacheFile, null);
+  }
+
+  private static void appendCache(final @NonNull File inputFile, final @NonNull File cacheFile) throws IOException {
+    final TickCache tickCache = new TickCache(cacheFile);
+    log.info("Appending to tick cache {} with {} ticks the lines of {} after byte {}", cacheFile.getName(), tickCache.getSize(), inputFile.getName(),
+        tickCache.getInputLength());
+    writeCache(inputFile, cacheFile, tickCache);
+  }
+
+  /**
+   * Parse the input into the cache, from the start or, with the current cache, after its last parsed byte, copying its columns before the new ticks.
+   */
+  private static void writeCache(final @NonNull File inputFile, final @NonNull File cacheFile, final TickCache currentCache) throws IOException {
+    Files.createDirectories(cacheFile.getParentFile().toPath());
+    final File timestampFile = File.createTempFile(inputFile.getName(), ".timestamp", cacheFile.getParentFile());
+    final File bidFile = File.createTempFile(inputFile.getName(), ".bid", cacheFile.getParentFile());
+    final File askFile = File.createTempFile(inputFile.getName(), ".ask", cacheFile.getParentFile());
+    final File tmpFile = File.createTempFile(inputFile.getName(), CACHE_EXTENSION, cacheFile.getParentFile());
+    try {
+      final long size;
+      try (final DataOutputStream timestampOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(timestampFile)));
+          final DataOutputStream bidOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(bidFile)));
+          final DataOutputStream askOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(askFile)))) {
+        final long position = Objects.isNull(currentCache) ? 0 : currentCache.getInputLength();
+        final Tick lastTick = Objects.isNull(currentCache) ? TickService.getInitTick() : currentCache.getLastTick();
+        size = (Objects.isNull(currentCache) ? 0 : currentCache.getSize()) + TickService.readTicks(inputFile, position, lastTick, (epochMilli, bid, ask) -> {
+          try {
+            timestampOutput.writeLong(epochMilli);
+            bidOutput.writeLong(bid);
+            askOutput.writeLong(ask);
+          } catch (IOException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+      }
+
+      final long inputLength;
+      final long inputLastModified = inputFile.lastModified();
+      final long tailChecksum;
+      try (final FileChannel inputChannel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+        inputLength = inputChannel.size();
+        tailChecksum = getTailChecksum(inputChannel, inputLength);
+      }
+      try (final FileChannel cacheChannel = FileChannel.open(tmpFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(inputLength).putLong(inputLastModified).putLong(size).putLong(tailChecksum);
+        header.rewind();
+        cacheChannel.write(header);
+        final File[] columnFiles = {timestampFile, bidFile, askFile};
+        for (int column = 0; column < columnFiles.length; column++) {
+          if (Objects.nonNull(currentCache)) {
+            try (final FileChannel currentChannel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+              transfer(currentChannel, HEADER_SIZE + column * currentCache.getSize() * Long.BYTES, currentCache.getSize() * Long.BYTES, cacheChannel);
+            }
+          }
+          try (final FileChannel columnChannel = FileChannel.open(columnFiles[column].toPath(), StandardOpenOption.READ)) {
+            transfer(columnChannel, 0, columnChannel.size(), cacheChannel);
+          }
+        }
+      }
+      Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      log.info("Tick cache {} written with {} ticks", cacheFile.getName(), size);
+    } finally {
+      Files.deleteIfExists(timestampFile.toPath());
+      Files.deleteIfExists(bidFile.toPath());
+      Files.deleteIfExists(askFile.toPath());
+      Files.deleteIfExists(tmpFile.toPath());
+    }
+  }
+
+  private static void transfer(final @NonNull FileChannel source, final long from, final long length, final @NonNull FileChannel target) throws IOException {
+    long position = 0;
+    while (position < length) {
+      position += source.transferTo(from + position, length - position, target);
+    }
+  }
+
+  public class TickCache {
+
+    @Getter
+    private final long size;
+    @Getter
+    private final long inputLength;
+    private final MappedByteBuffer[] timestampColumn;
+    private final MappedByteBuffer[] bidColumn;
+    private final MappedByteBuffer[] askColumn;
+
+    private TickCache(final @NonNull File cacheFile) throws IOException {
+      try (final FileChannel fileChannel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        fileChannel.read(header, 0);
+        header.position(Integer.BYTES * 2);
+        this.inputLength = header.getLong();
+        header.getLong();
+        this.size = header.getLong();
+        this.timestampColumn = mapColumn(fileChannel, HEADER_SIZE, this.size);
+        this.bidColumn = mapColumn(fileChannel, HEADER_SIZE + this.size * Long.BYTES, this.size);
+        this.askColumn = mapColumn(fileChannel, HEADER_SIZE + this.size * Long.BYTES * 2, this.size);
+      }
+    }
+
+    private static MappedByteBuffer @NonNull [] mapColumn(final @NonNull FileChannel fileChannel, final long position, final long size) throws IOException {
+      final MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_TICKS - 1) / SEGMENT_TICKS)];
+      for (int i = 0; i < segments.length; i++) {
+        final long segmentTicks = Math.min(SEGMENT_TICKS, size - i * SEGMENT_TICKS);
+        segments[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, position + i * SEGMENT_TICKS * Long.BYTES, segmentTicks * Long.BYTES);
+      }
+      return segments;
+    }
+
+    private static int getOffset(final long index) {
+      return (int) (index & (SEGMENT_TICKS - 1)) * Long.BYTES;
+    }
+
+    public long getTimestamp(final long index) {
+      return this.timestampColumn[(int) (index >>> SEGMENT_BITS)].getLong(getOffset(index));
+    }
+
+    public long getFixedBid(final long index) {
+      return this.bidColumn[(int) (index >>> SEGMENT_BITS)].getLong(getOffset(index));
+    }
+
+    public long getFixedAsk(final long index) {
+      return this.askColumn[(int) (index >>> SEGMENT_BITS)].getLong(getOffset(index));
+    }
+
+    public @NonNull Tick getTick(final long index) {
+      return new Tick(DateTimeUtils.fromEpochMilli(this.getTimestamp(index)), this.getFixedBid(index), this.getFixedAsk(index));
+    }
+
+    /**
+     * @return The index of the first tick at or after the time, searched in the sorted timestamps, the size when there is none
+     */
+    public long getFirstTick(final long epochMilli) {
+      long low = 0;
+      long high = this.getSize();
+      while (low < high) {
+        final long middle = (low + high) >>> 1;
+        if (this.getTimestamp(middle) < epochMilli) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    public @NonNull Tick getLastTick() {
+      return this.getSize() == 0 ? TickService.getInitTick() : this.getTick(this.getSize() - 1);
+    }
+  }
+}
@@ -0,0 +1,269 @@
+package lu.forex.system.processor.services;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
+import lu.forex.system.processor.enums.Symbol;
+
+/**
+ * Seeded synthetic tick exports in the tab-separated format read by {@link TickService}, for load runs and benchmarks without the vendor data.
+ * <p>
+ * Prices are a bounded random walk from a usual price of the symbol with a random spread, the ticks arrive as a Poisson process of the given rate and there
+ * are no ticks on weekends. Like the real exports, some lines have an empty bid or ask and a few lines are older than the line before them. The same seed
+ * always gives the same bytes.
+ */
+@Log4j2
+@UtilityClass
+public class TickGeneratorService {
+
+  private static final byte[] HEADER = "<DATE>\t<TIME>\t<BID>\t<ASK>\t<LAST>\t<VOLUME>\t<FLAGS>\n".getBytes(StandardCharsets.US_ASCII);
+  private static final DateTimeFormatter FILE_DATE_FORMATTER = DateTimeFormatter.BASIC_ISO_DATE;
+  private static final int BUFFER_SIZE = 1 << 20;
+  private static final int MAX_LINE_SIZE = 96;
+  private static final long MILLIS_PER_DAY = 86_400_000L;
+  // 1970-01-01 was a Thursday, the fourth day of a week starting on Monday
+  private static final int EPOCH_DAY_OF_WEEK = 3;
+  private static final int SATURDAY = 5;
+  private static final int EMPTY_PRICE_RATE = 50;
+  private static final int OUT_OF_ORDER_RATE = 20_000;
+  private static final int MAX_STEP = 3;
+  private static final int MAX_SPREAD = 20;
+  private static final int EMPTY_BID = 0;
+  private static final int EMPTY_ASK = 1;
+  private static final int NO_EMPTY_PRICE = -1;
+  private static final int FLAG_BID = 2;
+  private static final int FLAG_ASK = 4;
+
+  /**
+   * Write the ticks of the symbol between the two dates in a new file of the folder, named {@code SYMBOL_from_to.csv} as the preprocessor expects.
+   *
+   * @param to The first day without ticks
+   * @return The tick file
+   */
+  public static @NonNull File generateTickFile(final @NonNull File outputFolder, final @NonNull Symbol symbol, final @NonNull LocalDate from,
+      final @NonNull LocalDate to, final double ticksPerSecond, final long seed) {
+    final File tickFile = new File(outputFolder, symbol.name() + "_" + FILE_DATE_FORMATTER.format(from) + "_" + FILE_DATE_FORMATTER.format(to) + ".csv");
+    final long start = System.nanoTime();
+    try {
+      Files.createDirectories(outputFolder.toPath());
+      final File tmpFile = File.createTempFile(tickFile.getName(), ".tmp", outputFolder);
+      try {
+        final long lines;
+        try (final OutputStream outputStream = new FileOutputStream(tmpFile)) {
+          lines = writeTicks(outputStream, symbol, from, to, ticksPerSecond, seed);
+        }
+        Files.move(tmpFile.toPath(), tickFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Tick file {} generated with {} lines and {} MB in {} ms", tickFile.getName(), lines, tickFile.length() >> 20, (System.nanoTime() - start) / 1_000_000L);
+      } finally {
+        Files.deleteIfExists(tmpFile.toPath());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return tickFile;
+  }
+
+  /**
+   * Write the header and the ticks of the symbol between the two dates.
+   *
+   * @param to The first day without ticks
+   * @return The number of tick lines written
+   */
+  public static long writeTicks(final @NonNull OutputStream outputStream, final @NonNull Symbol symbol, final @NonNull LocalDate from,
+      final @NonNull LocalDate to, final double ticksPerSecond, final long seed) throws IOException {
+    final TickGenerator tickGenerator = getTickGenerator(symbol, from, ticksPerSecond, seed);
+    final long toEpochMilli = to.toEpochDay() * MILLIS_PER_DAY;
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    int offset = 0;
+    long lines = 0;
+    outputStream.write(HEADER);
+    while (true) {
+      final int lineEnd = tickGenerator.writeLine(buffer, offset);
+      if (tickGenerator.getEpochMilli() >= toEpochMilli) {
+        break;
+      }
+      offset = lineEnd;
+      lines++;
+      if (offset > BUFFER_SIZE - MAX_LINE_SIZE) {
+        outputStream.write(buffer, 0, offset);
+        offset = 0;
+      }
+    }
+    outputStream.write(buffer, 0, offset);
+    return lines;
+  }
+
+  /**
+   * @return The header and the first lines of the ticks of the symbol from the start of the day
+   */
+  public static byte @NonNull [] getTickBytes(final @NonNull Symbol symbol, final @NonNull LocalDate from, final double ticksPerSecond, final long seed,
+      final int lines) {
+    final TickGenerator tickGenerator = getTickGenerator(symbol, from, ticksPerSecond, seed);
+    final byte[] buffer = Arrays.copyOf(HEADER, Math.addExact(HEADER.length, Math.multiplyExact(lines, MAX_LINE_SIZE)));
+    int offset = HEADER.length;
+    for (int i = 0; i < lines; i++) {
+      offset = tickGenerator.writeLine(buffer, offset);
+    }
+    return Arrays.copyOf(buffer, offset);
+  }
+
+  /**
+   * @return A generator of the ticks of the symbol from the start of the day, the same ones for the same seed
+   */
+  public static @NonNull TickGenerator getTickGenerator(final @NonNull Symbol symbol, final @NonNull LocalDate from, final double ticksPerSecond,
+      final long seed) {
+    if (!(ticksPerSecond > 0)) {
+      throw new IllegalArgumentException("Ticks per second must be positive: " + ticksPerSecond);
+    }
+    return new TickGenerator(symbol, from.toEpochDay() * MILLIS_PER_DAY, ticksPerSecond, seed);
+  }
+
+  /**
+   * @return The usual price of the symbol, in points
+   */
+  private static long getBasePoints(final @NonNull Symbol symbol) {
+    return switch (symbol) {
+      case EURUSD -> 110_000L;
+      case USDJPY -> 145_000L;
+      case GBPUSD -> 127_000L;
+      case USDCAD -> 135_000L;
+      case AUDUSD -> 66_000L;
+      case USDCHF -> 88_000L;
+      case NZDUSD -> 61_000L;
+    };
+  }
+
+  private static int getDayOfWeek(final long epochDay) {
+    return (int) Math.floorMod(epochDay + EPOCH_DAY_OF_WEEK, 7L);
+  }
+
+  /**
+   * The next ticks of one symbol, written straight to a byte buffer one line at a time.
+   */
+  public class TickGenerator {
+
+    private final SplittableRandom random;
+    private final int digits;
+    private final long pointFactor;
+    private final long minPoints;
+    private final long maxPoints;
+    private final double meanDelayMillis;
+    private final byte[] date = new byte[10];
+    private long dateEpochDay = Long.MIN_VALUE;
+    @Getter
+    private long epochMilli;
+    private long bidPoints;
+
+    private TickGenerator(final @NonNull Symbol symbol, final long fromEpochMilli, final double ticksPerSecond, final long seed) {
+      this.random = new SplittableRandom(seed * 31 + symbol.ordinal());
+      this.digits = symbol.getPip().stripTrailingZeros().scale();
+      this.pointFactor = BigDecimal.ONE.divide(symbol.getPip()).longValueExact();
+      final long basePoints = getBasePoints(symbol);
+      this.minPoints = basePoints * 7 / 10;
+      this.maxPoints = basePoints * 13 / 10;
+      this.meanDelayMillis = 1000.0 / ticksPerSecond;
+      this.epochMilli = fromEpochMilli;
+      this.bidPoints = basePoints;
+    }
+
+    /**
+     * Move to the next line and write it in the buffer, which needs {@value #MAX_LINE_SIZE} bytes from the offset.
+     *
+     * @return The offset after the line
+     */
+    public int writeLine(final byte @NonNull [] buffer, final int offset) {
+      if (this.random.nextInt(OUT_OF_ORDER_RATE) == 0 && this.dateEpochDay != Long.MIN_VALUE) {
+        return this.writeLine(buffer, offset, this.epochMilli - 1 - this.random.nextInt(1000), this.bidPoints, this.bidPoints + 1 + this.random.nextInt(MAX_SPREAD), NO_EMPTY_PRICE);
+      }
+      this.epochMilli = this.getNextEpochMilli();
+      final int bias = this.bidPoints < this.minPoints ? 1 : (this.bidPoints > this.maxPoints ? -1 : 0);
+      this.bidPoints = Math.max(1L, this.bidPoints + this.random.nextInt(-MAX_STEP, MAX_STEP + 1) + bias);
+      return this.writeLine(buffer, offset, this.epochMilli, this.bidPoints, this.bidPoints + 1 + this.random.nextInt(MAX_SPREAD),
+          this.random.nextInt(EMPTY_PRICE_RATE));
+    }
+
+    private long getNextEpochMilli() {
+      final long delay = 1L + (long) (-Math.log(1.0 - this.random.nextDouble()) * this.meanDelayMillis);
+      final long nextEpochMilli = this.epochMilli + delay;
+      final long epochDay = Math.floorDiv(nextEpochMilli, MILLIS_PER_DAY);
+      final int dayOfWeek = getDayOfWeek(epochDay);
+      // the market is closed from Saturday to Monday
+      return dayOfWeek < SATURDAY ? nextEpochMilli : (epochDay + 7 - dayOfWeek) * MILLIS_PER_DAY + delay;
+    }
+
+    /**
+     * @param emptyPrice {@value #EMPTY_BID} to leave the bid empty, {@value #EMPTY_ASK} for the ask, any other value to write both
+     */
+    private int writeLine(final byte @NonNull [] buffer, final int offset, final long lineEpochMilli, final long bid, final long ask, final int emptyPrice) {
+      final long epochDay = Math.floorDiv(lineEpochMilli, MILLIS_PER_DAY);
+      if (epochDay != this.dateEpochDay) {
+        this.dateEpochDay = epochDay;
+        final LocalDate localDate = LocalDate.ofEpochDay(epochDay);
+        writeDigits(this.date, 0, localDate.getYear(), 4);
+        this.date[4] = '.';
+        writeDigits(this.date, 5, localDate.getMonthValue(), 2);
+        this.date[7] = '.';
+        writeDigits(this.date, 8, localDate.getDayOfMonth(), 2);
+      }
+      final int millisOfDay = (int) Math.floorMod(lineEpochMilli, MILLIS_PER_DAY);
+      System.arraycopy(this.date, 0, buffer, offset, this.date.length);
+      int position = offset + this.date.length;
+      buffer[position++] = '\t';
+      position = writeDigits(buffer, position, millisOfDay / 3_600_000, 2);
+      buffer[position++] = ':';
+      position = writeDigits(buffer, position, millisOfDay / 60_000 % 60, 2);
+      buffer[position++] = ':';
+      position = writeDigits(buffer, position, millisOfDay / 1000 % 60, 2);
+      buffer[position++] = '.';
+      position = writeDigits(buffer, position, millisOfDay % 1000, 3);
+      buffer[position++] = '\t';
+      if (emptyPrice != EMPTY_BID) {
+        position = this.writePrice(buffer, position, bid);
+      }
+      buffer[position++] = '\t';
+      if (emptyPrice != EMPTY_ASK) {
+        position = this.writePrice(buffer, position, ask);
+      }
+      buffer[position++] = '\t';
+      buffer[position++] = '\t';
+      buffer[position++] = '\t';
+      buffer[position++] = (byte) ('0' + (emptyPrice == EMPTY_BID ? FLAG_ASK : (emptyPrice == EMPTY_ASK ? FLAG_BID : FLAG_BID + FLAG_ASK)));
+      buffer[position++] = '\n';
+      return position;
+    }
+
+    private int writePrice(final byte @NonNull [] buffer, final int offset, final long points) {
+      final long integer = points / this.pointFactor;
+      int position = writeDigits(buffer, offset, integer, Math.max(1, (int) Math.log10(integer) + 1));
+      buffer[position++] = '.';
+      return writeDigits(buffer, position, points % this.pointFactor, this.digits);
+    }
+
+    /**
+     * Write the value with leading zeros up to the number of digits.
+     *
+     * @return The offset after the digits
+     */
+    private static int writeDigits(final byte @NonNull [] buffer, final int offset, final long value, final int digits) {
+      long remaining = value;
+      for (int i = offset + digits - 1; i >= offset; i--) {
+        buffer[i] = (byte) ('0' + remaining % 10);
+        remaining /= 10;
+      }
+      return offset + digits;
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package lu.forex.system.processor.services;
+
+import java.time.DayOfWeek;
+import java.util.Arrays;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
+import lu.forex.system.processor.services.TickCacheService.TickCache;
+
+/**
+ * Range-extrema index over the ticks of a {@link TickCache}. The ticks are grouped in one-minute buckets and segment trees keep the min/max bid and ask of
+ * every bucket, so the first tick of a range crossing a price is found in logarithmic time, replaying only the bucket that crosses it.
+ */
+@Log4j2
+@UtilityClass
+public class TickIndexService {
+
+  private static final long MILLIS_PER_MINUTE = 60_000L;
+  private static final long MILLIS_PER_DAY = 86_400_000L;
+  private static final int EPOCH_DAY_OF_WEEK = DayOfWeek.THURSDAY.ordinal();
+
+  public static @NonNull TickIndex getTickIndex(final @NonNull TickCache tickCache) {
+    final TickIndex tickIndex = new TickIndex(tickCache);
+    log.info("Tick index with {} buckets and {} swap ticks built from {} ticks", tickIndex.getBucketsSize(), tickIndex.swapTicks.length, tickCache.getSize());
+    return tickIndex;
+  }
+
+  private static @NonNull DayOfWeek getDayOfWeek(final long epochMilli) {
+    return DayOfWeek.values()[(int) Math.floorMod(Math.floorDiv(epochMilli, MILLIS_PER_DAY) + EPOCH_DAY_OF_WEEK, 7L)];
+  }
+
+  public class TickIndex {
+
+    @Getter
+    private final TickCache tickCache;
+    @Getter
+    private final int bucketsSize;
+    private final long[] bucketStarts;
+    private final int leaves;
+    private final int[] maxBid;
+    private final int[] minBid;
+    private final int[] maxAsk;
+    private final int[] minAsk;
+    private final long[] swapTicks;
+
+    private TickIndex(final @NonNull TickCache tickCache) {
+      this.tickCache = tickCache;
+      long[] starts = new long[1 << 10];
+      int[] bucketMaxBid = new int[starts.length];
+      int[] bucketMinBid = new int[starts.length];
+      int[] bucketMaxAsk = new int[starts.length];
+      int[] bucketMinAsk = new int[starts.length];
+      long[] swaps = new long[1 << 6];
+      int buckets = 0;
+      int swapsSize = 0;
+      long lastMinute = Long.MIN_VALUE;
+      DayOfWeek lastDayOfWeek = TickService.getInitTick().getDateTime().getDayOfWeek();
+
+      for (long i = 0; i < tickCache.getSize(); i++) {
+        final long timestamp = tickCache.getTimestamp(i);
+        final int bid = Math.toIntExact(tickCache.getFixedBid(i));
+        final int ask = Math.toIntExact(tickCache.getFixedAsk(i));
+        final long minute = Math.floorDiv(timestamp, MILLIS_PER_MINUTE);
+        if (minute != lastMinute) {
+          if (buckets == starts.length) {
+            starts = Arrays.copyOf(starts, buckets * 2);
+            bucketMaxBid = Arrays.copyOf(bucketMaxBid, buckets * 2);
+            bucketMinBid = Arrays.copyOf(bucketMinBid, buckets * 2);
+            bucketMaxAsk = Arrays.copyOf(bucketMaxAsk, buckets * 2);
+            bucketMinAsk = Arrays.copyOf(bucketMinAsk, buckets * 2);
+          }
+          starts[buckets] = i;
+          bucketMaxBid[buckets] = bid;
+          bucketMinBid[buckets] = bid;
+          bucketMaxAsk[buckets] = ask;
+          bucketMinAsk[buckets] = ask;
+          buckets++;
+          lastMinute = minute;
+        } else {
+          bucketMaxBid[buckets - 1] = Math.max(bucketMaxBid[buckets - 1], bid);
+          bucketMinBid[buckets - 1] = Math.min(bucketMinBid[buckets - 1], bid);
+          bucketMaxAsk[buckets - 1] = Math.max(bucketMaxAsk[buckets - 1], ask);
+          bucketMinAsk[buckets - 1] = Math.min(bucketMinAsk[buckets - 1], ask);
+        }
+
+        final DayOfWeek dayOfWeek = getDayOfWeek(timestamp);
+        if (DayOfWeek.TUESDAY.equals(lastDayOfWeek) && DayOfWeek.WEDNESDAY.equals(dayOfWeek)) {
+          if (swapsSize == swaps.length) {
+            swaps = Arrays.copyOf(swaps, swapsSize * 2);
+          }
+          swaps[swapsSize++] = i;
+        }
+        lastDayOfWeek = dayOfWeek;
+      }
+
+      this.bucketsSize = buckets;
+      this.bucketStarts = Arrays.copyOf(starts, buckets + 1);
+      this.bucketStarts[buckets] = tickCache.getSize();
+      this.swapTicks = Arrays.copyOf(swaps, swapsSize);
+      this.leaves = Integer.highestOneBit(Math.max(buckets, 1) * 2 - 1);
+      this.maxBid = buildTree(bucketMaxBid, buckets, this.leaves, true);
+      this.minBid = buildTree(bucketMinBid, buckets, this.leaves, false);
+      this.maxAsk = buildTree(bucketMaxAsk, buckets, this.leaves, true);
+      this.minAsk = buildTree(bucketMinAsk, buckets, this.leaves, false);
+    }
+
+    private static int @NonNull [] buildTree(final int @NonNull [] values, final int size, final int leaves, final boolean max) {
+      final int[] tree = new int[leaves * 2];
+      Arrays.fill(tree, max ? Integer.MIN_VALUE : Integer.MAX_VALUE);
+      System.arraycopy(values, 0, tree, leaves, size);
+      for (int node = leaves - 1; node > 0; node--) {
+        tree[node] = max ? Math.max(tree[node * 2], tree[node * 2 + 1]) : Math.min(tree[node * 2], tree[node * 2 + 1]);
+      }
+      return tree;
+    }
+
+    /**
+     * @return The index of the first tick with the timestamp equal or after the epoch milliseconds, or the size when there is none
+     */
+    public long getFirstTick(final long epochMilli) {
+      return this.tickCache.getFirstTick(epochMilli);
+    }
+
+    /**
+     * @return The position in {@link #getSwapTick(int)} of the first swap tick equal or after the tick index
+     */
+    public int getNextSwap(final long tickIndex) {
+      final int position = Arrays.binarySearch(this.swapTicks, tickIndex);
+      return position >= 0 ? position : -position - 1;
+    }
+
+    /**
+     * @return The index of the swap tick, the first tick of a Wednesday right after a Tuesday tick, or the size when there are no more swap ticks
+     */
+    public long getSwapTick(final int position) {
+      return position < this.swapTicks.length ? this.swapTicks[position] : this.tickCache.getSize();
+    }
+
+    /**
+     * Find the first tick between {@code from} and {@code to} (both inclusive) with the price at or above ({@code above}), or at or below, the threshold.
+     *
+     * @param ask True to search the ask prices, false for the bid prices
+     * @return The tick index, or -1 when no tick of the range crosses the threshold
+     */
+    public long findFirst(final boolean ask, final boolean above, final long from, final long to, final long threshold) {
+      if (from > to) {
+        return -1;
+      }
+      final int fromBucket = this.getBucket(from);
+      final int toBucket = this.getBucket(to);
+      final long firstTick = this.scan(ask, above, from, Math.min(to, this.bucketStarts[fromBucket + 1] - 1), threshold);
+      if (firstTick >= 0 || fromBucket == toBucket) {
+        return firstTick;
+      }
+      final int[] tree = ask ? (above ? this.maxAsk : this.minAsk) : (above ? this.maxBid : this.minBid);
+      final int bucket = this.findFirstBucket(tree, above, 1, 0, this.leaves - 1, fromBucket + 1, toBucket, threshold);
+      return bucket < 0 ? -1 : this.scan(ask, above, this.bucketStarts[bucket], Math.min(to, this.bucketStarts[bucket + 1] - 1), threshold);
+    }
+
+    private long scan(final boolean ask, final boolean above, final long from, final long to, final long threshold) {
+      for (long i = from; i <= to; i++) {
+        final long price = ask ? this.tickCache.getFixedAsk(i) : this.tickCache.getFixedBid(i);
+        if (above ? price >= threshold : price <= threshold) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private int findFirstBucket(final int @NonNull [] tree, final boolean above, final int node, final int nodeFrom, final int nodeTo, final int from, final int to,
+        final long threshold) {
+      if (nodeTo < from || nodeFrom > to || (above ? tree[node] < threshold : tree[node] > threshold)) {
+        return -1;
+      }
+      if (nodeFrom == nodeTo) {
+        return nodeFrom;
+      }
+      final int middle = (nodeFrom + nodeTo) >>> 1;
+      final int bucket = this.findFirstBucket(tree, above, node * 2, nodeFrom, middle, from, to, threshold);
+      return bucket >= 0 ? bucket : this.findFirstBucket(tree, above, node * 2 + 1, middle + 1, nodeTo, from, to, threshold);
+    }
+
+    private int getBucket(final long tickIndex) {
+      final int position = Arrays.binarySearch(this.bucketStarts, 0, this.bucketsSize, tickIndex);
+      return position >= 0 ? position : -position - 2;
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package lu.forex.system.processor.services;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import lu.forex.system.processor.utils.PriceUtils;
+
+/**
+ * Decode the {@code yyyy.MM.dd\tHH:mm:ss.SSS\tbid\task} lines of the tick exports straight from the bytes, without intermediate strings. The result of the
+ * last {@link #parse(byte[], int, int)} is kept in primitives, with the prices as fixed prices of {@link PriceUtils}, so one parser instance is reused for
+ * every line of a file.
+ * <p>
+ * Prices with more than {@link PriceUtils#PRICE_SCALE} decimals or in exponent form are rounded half up to {@link PriceUtils#PRICE_SCALE} decimals with a
+ * warning, as the former {@code Double.parseDouble} decoding accepted them. Set {@code -Dtick.strictPrices=true} to reject them instead.
+ */
+@Log4j2
+@Getter
+public class TickLineParser {
+
+  private static final byte TAB = '\t';
+  private static final long MILLIS_PER_DAY = 86_400_000L;
+  private static final int MAX_DIGITS = 13;
+  private static final int DATE_TIME_LENGTH = "yyyy.MM.dd\tHH:mm".length();
+  private static final boolean STRICT_PRICES = Boolean.getBoolean("tick.strictPrices");
+
+  private long epochMilli;
+  private long fixedBid;
+  private long fixedAsk;
+  @Getter(AccessLevel.NONE)
+  private boolean roundingWarned;
+
+  /**
+   * Parse the line between {@code from} (inclusive) and {@code to} (exclusive). Empty bid or ask columns are decoded as zero.
+   *
+   * @throws IllegalStateException When the date or the time is truncated, malformed or out of range
+   */
+  public void parse(final byte @NonNull [] buffer, final int from, final int to) {
+    if (to - from < DATE_TIME_LENGTH) {
+      throw new IllegalStateException("Truncated date and time in tick line");
+    }
+    int position = from;
+    final int year = (int) this.readNumber(buffer, position, position + 4);
+    checkSeparator(buffer, position + 4, '.');
+    final int month = checkRange((int) this.readNumber(buffer, position + 5, position + 7), 1, 12, "month");
+    checkSeparator(buffer, position + 7, '.');
+    final int day = checkRange((int) this.readNumber(buffer, position + 8, position + 10), 1, getMonthLength(year, month), "day");
+    position = this.skipTab(buffer, position + 10, to);
+
+    final int hour = checkRange((int) this.readNumber(buffer, position, position + 2), 0, 23, "hour");
+    checkSeparator(buffer, position + 2, ':');
+    final int minute = checkRange((int) this.readNumber(buffer, position + 3, position + 5), 0, 59, "minute");
+    position += 5;
+    int second = 0;
+    int milli = 0;
+    if (position < to && buffer[position] == ':') {
+      if (position + 3 > to) {
+        throw new IllegalStateException("Truncated seconds in tick line");
+      }
+      second = checkRange((int) this.readNumber(buffer, position + 1, position + 3), 0, 59, "second");
+      position += 3;
+      if (position < to && buffer[position] == '.') {
+        position++;
+        int digits = 0;
+        while (position < to && buffer[position] != TAB) {
+          if (digits < 3) {
+            milli = milli * 10 + this.getDigit(buffer, position);
+          }
+          digits++;
+          position++;
+        }
+        for (; digits < 3; digits++) {
+          milli *= 10;
+        }
+      }
+    }
+    position = this.skipTab(buffer, position, to);
+    this.epochMilli = getEpochDay(year, month, day) * MILLIS_PER_DAY + ((hour * 60L + minute) * 60L + second) * 1000L + milli;
+
+    final int bidEnd = this.findTab(buffer, position, to);
+    this.fixedBid = this.readFixedPrice(buffer, position, bidEnd);
+    position = Math.min(bidEnd + 1, to);
+    final int askEnd = this.findTab(buffer, position, to);
+    this.fixedAsk = this.readFixedPrice(buffer, position, askEnd);
+  }
+
+  private long readFixedPrice(final byte @NonNull [] buffer, final int from, final int to) {
+    if (from >= to) {
+      return 0L;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int decimals = -1;
+    for (int i = from; i < to; i++) {
+      if (buffer[i] == '.') {
+        decimals = 0;
+      } else {
+        final int digit = buffer[i] - '0';
+        if (digit < 0 || digit > 9) {
+          return this.readRoundedPrice(buffer, from, to);
+        }
+        mantissa = mantissa * 10 + digit;
+        digits++;
+        if (decimals >= 0) {
+          decimals++;
+        }
+      }
+    }
+    if (digits > MAX_DIGITS) {
+      return this.readRoundedPrice(buffer, from, to);
+    }
+    int scale = Math.max(decimals, 0);
+    for (; scale < PriceUtils.PRICE_SCALE; scale++) {
+      mantissa *= 10;
+    }
+    for (; scale > PriceUtils.PRICE_SCALE; scale--) {
+      if (mantissa % 10 != 0) {
+        return this.readRoundedPrice(buffer, from, to);
+      }
+      mantissa /= 10;
+    }
+    return mantissa;
+  }
+
+  /**
+   * The slow path for the prices the fixed decoding can't take as is, such as the exponent form or more than {@link PriceUtils#PRICE_SCALE} decimals: they
+   * are rounded half up to {@link PriceUtils#PRICE_SCALE} decimals, or rejected when {@code tick.strictPrices} is set.
+   */
+  private long readRoundedPrice(final byte @NonNull [] buffer, final int from, final int to) {
+    final String text = new String(buffer, from, to - from, StandardCharsets.US_ASCII);
+    if (STRICT_PRICES) {
+      throw new IllegalStateException("Price '" + text + "' with more than " + PriceUtils.PRICE_SCALE + " decimals or in exponent form in tick line");
+    }
+    try {
+      final BigDecimal price = new BigDecimal(text).setScale(PriceUtils.PRICE_SCALE, RoundingMode.HALF_UP);
+      if (!this.roundingWarned) {
+        this.roundingWarned = true;
+        log.warn("Rounding the tick price '{}' to {} ({} decimals), further prices of this file are rounded silently", text, price, PriceUtils.PRICE_SCALE);
+      }
+      return price.unscaledValue().longValueExact();
+    } catch (final NumberFormatException | ArithmeticException e) {
+      throw new IllegalStateException("Unexpected price '" + text + "' in tick line", e);
+    }
+  }
+
+  private long readNumber(final byte @NonNull [] buffer, final int from, final int to) {
+    long number = 0;
+    for (int i = from; i < to; i++) {
+      number = number * 10 + this.getDigit(buffer, i);
+    }
+    return number;
+  }
+
+  private int getDigit(final byte @NonNull [] buffer, final int position) {
+    final int digit = buffer[position] - '0';
+    if (digit < 0 || digit > 9) {
+      throw new IllegalStateException("Unexpected character '" + (char) buffer[position] + "' in tick line");
+    }
+    return digit;
+  }
+
+  private static void checkSeparator(final byte @NonNull [] buffer, final int position, final char separator) {
+    if (buffer[position] != separator) {
+      throw new IllegalStateException("Unexpected character '" + (char) buffer[position] + "' instead of '" + separator + "' in tick line");
+    }
+  }
+
+  private static int checkRange(final int value, final int min, final int max, final @NonNull String field) {
+    if (value < min || value > max) {
+      throw new IllegalStateException("Unexpected " + field + " " + value + " in tick line");
+    }
+    return value;
+  }
+
+  private int skipTab(final byte @NonNull [] buffer, final int position, final int to) {
+    if (position >= to || buffer[position] != TAB) {
+      throw new IllegalStateException("Missing column separator in tick line");
+    }
+    return position + 1;
+  }
+
+  private int findTab(final byte @NonNull [] buffer, final int from, final int to) {
+    int position = from;
+    while (position < to && buffer[position] != TAB) {
+      position++;
+    }
+    return position;
+  }
+
+  private static int getMonthLength(final int year, final int month) {
+    return switch (month) {
+      case 2 -> (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+      case 4, 6, 9, 11 -> 30;
+      default -> 31;
+    };
+  }
+
+  /**
+   * Days since 1970-01-01 of a proleptic Gregorian date, the same value as {@code LocalDate.of(year, month, day).toEpochDay()}.
+   */
+  private static long getEpochDay(final int year, final int month, final int day) {
+    final int shiftedYear = month <= 2 ? year - 1 : year;
+    final int era = Math.floorDiv(shiftedYear, 400);
+    final int yearOfEra = shiftedYear - era * 400;
+    final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146_097L + dayOfEra - 719_468L;
+  }
+}
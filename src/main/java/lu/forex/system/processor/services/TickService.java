@@ -1,35 +1,57 @@
 package lu.forex.system.processor.services;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.SneakyThrows;
 import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
 import lu.forex.system.processor.models.Tick;
+import lu.forex.system.processor.services.MetricsService.Counter;
+import lu.forex.system.processor.services.MetricsService.Histogram;
+import lu.forex.system.processor.utils.DateTimeUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
+@Log4j2
 @UtilityClass
 public class TickService {
 
+  private static final int BUFFER_SIZE = 1 << 20;
+  private static final long CHUNK_SIZE = Long.getLong("tick.parseChunkMb", 16L) << 20;
+  private static final int PARSE_WINDOW = Runtime.getRuntime().availableProcessors() * 2;
+  private static final Counter TICKS_PARSED = MetricsService.getCounter("ticks_parsed_total");
+  private static final Counter BYTES_READ = MetricsService.getCounter("tick_bytes_read_total");
+  private static final Histogram PARSE_DURATION = MetricsService.getStageHistogram("parse");
+
   /**
    * @return The ticks Pair ( CURRENT | LAST )
    */
   @SneakyThrows
   public static Stream<Pair<Tick, Tick>> getTicks(final@NonNull BufferedReader bufferedReader) {
-      final AtomicReference<Tick> lastTick = new AtomicReference<>(new Tick(LocalDateTime.MIN, BigDecimal.valueOf(-1d), BigDecimal.valueOf(-1d)));
+      final AtomicReference<Tick> lastTick = new AtomicReference<>(getInitTick());
       return bufferedReader.lines().skip(1).map(line -> {
         final Tick lineTick = getLineTick(line);
         if (lineTick.getDateTime().isAfter(lastTick.get().getDateTime())) {
           final LocalDateTime dateTime = lineTick.getDateTime();
-          final BigDecimal bid = lineTick.getBid().compareTo(BigDecimal.ZERO) > 0 ? lineTick.getBid() : lastTick.get().getBid();
-          final BigDecimal ask = lineTick.getAsk().compareTo(BigDecimal.ZERO) > 0 ? lineTick.getAsk() : lastTick.get().getAsk();
+          final long bid = lineTick.getFixedBid() > 0 ? lineTick.getFixedBid() : lastTick.get().getFixedBid();
+          final long ask = lineTick.getFixedAsk() > 0 ? lineTick.getFixedAsk() : lastTick.get().getFixedAsk();
 
-          if (bid.compareTo(BigDecimal.ZERO) > 0 && ask.compareTo(BigDecimal.ZERO) > 0) {
+          if (bid > 0 && ask > 0) {
             final Tick currentTick = new Tick(dateTime, bid, ask);
             return Pair.of(currentTick, lastTick.getAndSet(currentTick));
           }
@@ -38,6 +60,150 @@ public class TickService {
       }).filter(Objects::nonNull);
   }
 
+  /**
+   * Read the ticks of a tab-separated export with the {@link TickLineParser}, applying the same rules as {@link #getTicks(BufferedReader)} without
+   * creating objects per line.
+   * <p>
+   * Files bigger than one chunk are split at line-aligned offsets and the chunks are parsed in parallel, a window of chunks at a time. The rules depend on
+   * the last accepted tick, so the parsed lines are then filtered in file order, carrying the last tick across the chunk seams exactly as a sequential read.
+   *
+   * @return The number of ticks given to the consumer
+   */
+  public static long readTicks(final @NonNull File inputFile, final @NonNull TickConsumer tickConsumer) {
+    return readTicks(inputFile, 0, getInitTick(), tickConsumer);
+  }
+
+  /**
+   * Read the ticks from a line start of the file, continuing after the last tick read before it.
+   *
+   * @param position The offset where the lines to read start, 0 to read the file with its header line
+   * @param lastTick The last tick before the offset, {@link #getInitTick()} from the start of the file
+   * @return The number of ticks given to the consumer
+   */
+  @SneakyThrows
+  public static long readTicks(final @NonNull File inputFile, final long position, final @NonNull Tick lastTick, final @NonNull TickConsumer tickConsumer) {
+    final long start = System.nanoTime();
+    try (final FileChannel fileChannel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+      final TickFilter tickFilter = new TickFilter(tickConsumer, lastTick);
+      final long[] chunkStarts = getChunkStarts(fileChannel, position);
+      if (chunkStarts.length <= 2) {
+        final TickLineParser tickLineParser = new TickLineParser();
+        readLines(fileChannel, position, fileChannel.size(), inputFile.getName(), (buffer, from, to) -> {
+          tickLineParser.parse(buffer, from, to);
+          tickFilter.accept(tickLineParser.getEpochMilli(), tickLineParser.getFixedBid(), tickLineParser.getFixedAsk());
+        });
+      } else {
+        log.info("Parsing {} in {} chunks", inputFile.getName(), chunkStarts.length - 1);
+        for (int window = 0; window < chunkStarts.length - 1; window += PARSE_WINDOW) {
+          IntStream.range(window, Math.min(window + PARSE_WINDOW, chunkStarts.length - 1)).parallel()
+              .mapToObj(chunk -> parseChunk(fileChannel, chunkStarts[chunk], chunkStarts[chunk + 1], inputFile.getName())).toList()
+              .forEach(parsedChunk -> parsedChunk.forEach(tickFilter));
+        }
+      }
+      TICKS_PARSED.add(tickFilter.getSize());
+      BYTES_READ.add(fileChannel.size() - position);
+      PARSE_DURATION.recordSince(start);
+      return tickFilter.getSize();
+    }
+  }
+
+  /**
+   * @return The offsets where the chunks start, each one right after a line end, followed by the file size
+   */
+  private static long @NonNull [] getChunkStarts(final @NonNull FileChannel fileChannel, final long from) throws IOException {
+    final long fileSize = fileChannel.size();
+    final ByteBuffer byteBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    final List<Long> chunkStarts = new ArrayList<>();
+    chunkStarts.add(from);
+    long position = from + CHUNK_SIZE;
+    while (position < fileSize) {
+      long lineEnd = -1;
+      for (long searchFrom = position - 1; lineEnd < 0 && searchFrom < fileSize; searchFrom += byteBuffer.limit()) {
+        byteBuffer.clear();
+        fileChannel.read(byteBuffer, searchFrom);
+        byteBuffer.flip();
+        for (int i = 0; i < byteBuffer.limit(); i++) {
+          if (byteBuffer.get(i) == '\n') {
+            lineEnd = searchFrom + i;
+            break;
+          }
+        }
+      }
+      if (lineEnd < 0 || lineEnd + 1 >= fileSize) {
+        break;
+      }
+      chunkStarts.add(lineEnd + 1);
+      position = lineEnd + 1 + CHUNK_SIZE;
+    }
+    chunkStarts.add(fileSize);
+    return chunkStarts.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  private static @NonNull ParsedChunk parseChunk(final @NonNull FileChannel fileChannel, final long from, final long to, final @NonNull String fileName) {
+    final TickLineParser tickLineParser = new TickLineParser();
+    final ParsedChunk parsedChunk = new ParsedChunk();
+    readLines(fileChannel, from, to, fileName, (buffer, lineFrom, lineTo) -> {
+      tickLineParser.parse(buffer, lineFrom, lineTo);
+      parsedChunk.add(tickLineParser.getEpochMilli(), tickLineParser.getFixedBid(), tickLineParser.getFixedAsk());
+    });
+    return parsedChunk;
+  }
+
+  /**
+   * Give every non-empty line between the offsets to the consumer, without the line end, skipping the header line when reading from the start of the file.
+   */
+  @SneakyThrows
+  private static void readLines(final @NonNull FileChannel fileChannel, final long from, final long to, final @NonNull String fileName,
+      final @NonNull LineConsumer lineConsumer) {
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    boolean header = from == 0;
+    long position = from;
+    int limit = 0;
+    boolean endOfFile = false;
+    while (!endOfFile) {
+      byteBuffer.limit((int) Math.min(buffer.length, limit + to - position)).position(limit);
+      final int read = byteBuffer.hasRemaining() ? fileChannel.read(byteBuffer, position) : -1;
+      endOfFile = read < 0;
+      position += Math.max(read, 0);
+      final int scanFrom = limit;
+      limit = byteBuffer.position();
+
+      int lineStart = 0;
+      for (int i = scanFrom; i <= limit; i++) {
+        final boolean isLineEnd = i < limit ? buffer[i] == '\n' : endOfFile && lineStart < limit;
+        if (!isLineEnd) {
+          continue;
+        }
+        int lineEnd = i;
+        if (lineEnd > lineStart && buffer[lineEnd - 1] == '\r') {
+          lineEnd--;
+        }
+        if (header) {
+          header = false;
+        } else if (lineEnd > lineStart) {
+          lineConsumer.accept(buffer, lineStart, lineEnd);
+        }
+        lineStart = i + 1;
+      }
+
+      if (!endOfFile) {
+        if (lineStart == 0 && limit == buffer.length) {
+          throw new IllegalStateException("Tick line longer than " + BUFFER_SIZE + " bytes in " + fileName);
+        }
+        System.arraycopy(buffer, lineStart, buffer, 0, limit - lineStart);
+        limit -= lineStart;
+      }
+    }
+  }
+
+  /**
+   * @return The LAST tick before the first one of a file
+   */
+  public static @NonNull Tick getInitTick() {
+    return new Tick(LocalDateTime.MIN, BigDecimal.valueOf(-1d), BigDecimal.valueOf(-1d));
+  }
+
   private static @NonNull Tick getLineTick(final @NonNull String line) {
     final String[] parts = line.split("\t");
     final String date = parts[0].replace(".", "-");
@@ -48,4 +214,84 @@ public class TickService {
     final BigDecimal ask = parts[3].isEmpty() ? BigDecimal.ZERO : BigDecimal.valueOf(Double.parseDouble(parts[3]));
     return new Tick(localDateTime, bid, ask);
   }
+
+  @FunctionalInterface
+  private interface LineConsumer {
+
+    void accept(final byte @NonNull [] buffer, final int from, final int to);
+  }
+
+  /**
+   * The rules of {@link #getTicks(BufferedReader)}: a tick must be after the last one, and an empty bid or ask takes the last one.
+   */
+  private class TickFilter implements TickConsumer {
+
+    private final TickConsumer tickConsumer;
+    private long lastEpochMilli;
+    private long lastBid;
+    private long lastAsk;
+    @Getter
+    private long size;
+
+    private TickFilter(final @NonNull TickConsumer tickConsumer, final @NonNull Tick lastTick) {
+      this.tickConsumer = tickConsumer;
+      this.lastEpochMilli = LocalDateTime.MIN.equals(lastTick.getDateTime()) ? Long.MIN_VALUE : DateTimeUtils.toEpochMilli(lastTick.getDateTime());
+      this.lastBid = lastTick.getFixedBid();
+      this.lastAsk = lastTick.getFixedAsk();
+    }
+
+    @Override
+    public void accept(final long epochMilli, final long fixedBid, final long fixedAsk) {
+      if (epochMilli > this.lastEpochMilli) {
+        final long bid = fixedBid > 0 ? fixedBid : this.lastBid;
+        final long ask = fixedAsk > 0 ? fixedAsk : this.lastAsk;
+        if (bid > 0 && ask > 0) {
+          this.tickConsumer.accept(epochMilli, bid, ask);
+          this.lastEpochMilli = epochMilli;
+          this.lastBid = bid;
+          this.lastAsk = ask;
+          this.size++;
+        }
+      }
+    }
+  }
+
+  /**
+   * The lines of a chunk as parsed, before the rules, in columns growing as needed.
+   */
+  private class ParsedChunk {
+
+    private long[] epochMillis = new long[1 << 16];
+    private long[] fixedBids = new long[1 << 16];
+    private long[] fixedAsks = new long[1 << 16];
+    private int size;
+
+    private void add(final long epochMilli, final long fixedBid, final long fixedAsk) {
+      if (this.size == this.epochMillis.length) {
+        this.epochMillis = Arrays.copyOf(this.epochMillis, this.size * 2);
+        this.fixedBids = Arrays.copyOf(this.fixedBids, this.size * 2);
+        this.fixedAsks = Arrays.copyOf(this.fixedAsks, this.size * 2);
+      }
+      this.epochMillis[this.size] = epochMilli;
+      this.fixedBids[this.size] = fixedBid;
+      this.fixedAsks[this.size] = fixedAsk;
+      this.size++;
+    }
+
+    private void forEach(final @NonNull TickConsumer tickConsumer) {
+      for (int i = 0; i < this.size; i++) {
+        tickConsumer.accept(this.epochMillis[i], this.fixedBids[i], this.fixedAsks[i]);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  public interface TickConsumer {
+
+    /**
+     * @param fixedBid The bid, see {@link lu.forex.system.processor.utils.PriceUtils#toPrice(long)}
+     * @param fixedAsk The ask, see {@link lu.forex.system.processor.utils.PriceUtils#toPrice(long)}
+     */
+    void accept(final long epochMilli, final long fixedBid, final long fixedAsk);
+  }
 }
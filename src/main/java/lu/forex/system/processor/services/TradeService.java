@@ -1,18 +1,21 @@
 package lu.forex.system.processor.services;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.DayOfWeek;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -22,13 +25,21 @@ import lombok.experimental.UtilityClass;
 import lombok.extern.log4j.Log4j2;
 import lu.forex.system.processor.enums.OrderStatus;
 import lu.forex.system.processor.enums.SignalIndicator;
+import lu.forex.system.processor.enums.SignalIndicator.OrderType;
 import lu.forex.system.processor.enums.Symbol;
 import lu.forex.system.processor.enums.TimeFrame;
 import lu.forex.system.processor.enums.TimeFrame.Frame;
 import lu.forex.system.processor.models.Candlestick;
+import lu.forex.system.processor.models.CandlestickSeries;
 import lu.forex.system.processor.models.Tick;
 import lu.forex.system.processor.models.Trade;
+import lu.forex.system.processor.services.MetricsService.Counter;
+import lu.forex.system.processor.services.MetricsService.Histogram;
+import lu.forex.system.processor.services.TickCacheService.TickCache;
+import lu.forex.system.processor.services.TickIndexService.TickIndex;
+import lu.forex.system.processor.utils.DateTimeUtils;
 import lu.forex.system.processor.utils.MathUtils;
+import lu.forex.system.processor.utils.PriceUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
 @Log4j2
@@ -37,7 +48,15 @@ public class TradeService {
 
   private static final BigDecimal TP_POINTS = BigDecimal.valueOf(100);
   private static final BigDecimal RISK_SL = BigDecimal.valueOf(0.70);
-  private static final BigDecimal TP_TARGET = BigDecimal.valueOf(0.60);
+  static final BigDecimal TP_TARGET = BigDecimal.valueOf(0.60);
+  private static final boolean OFF_HEAP_SERIES = Boolean.getBoolean("candlestick.series.offHeap");
+  private static final String TICK_REPLAY_PROPERTY = "trade.tickReplay";
+  private static final Histogram AGGREGATE_DURATION = MetricsService.getStageHistogram("aggregate");
+  private static final Histogram SIMULATE_DURATION = MetricsService.getStageHistogram("simulate");
+  private static final String POSITIONS_OPENED = "positions_opened_total";
+  private static final String POSITIONS_CLOSED = "positions_closed_total";
+  private static final Counter SCOPES_STOPPED = MetricsService.getCounter("time_scope_simulations_total", "result", "stopped");
+  private static final Counter SCOPES_COMPLETED = MetricsService.getCounter("time_scope_simulations_total", "result", "completed");
 
 //  public static @NonNull Collection<Trade> getTrades(final @NonNull File inputFile, final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol, final @NonNull List<Candlestick> candlestickList, final @NonNull Map<TimeScope, List<PreTrade>> timeScopeMapMap) {
 //    final List<Trade> tradeList = timeScopeMapMap.entrySet().parallelStream().map(timeScopeMapEntry -> {
@@ -50,99 +69,292 @@ public class TradeService {
 //  }
 
   public static @NonNull RangerProfit getRangerProfit() {
-    return new RangerProfit(TP_POINTS, TP_POINTS.multiply(RISK_SL).multiply(BigDecimal.valueOf(-1)));
+    return getRangerProfit(TP_POINTS, RISK_SL);
+  }
+
+  public static @NonNull RangerProfit getRangerProfit(final @NonNull BigDecimal takeProfit, final @NonNull BigDecimal riskStopLoss) {
+    return new RangerProfit(takeProfit, takeProfit.multiply(riskStopLoss).multiply(BigDecimal.valueOf(-1)));
+  }
+
+  /**
+   * @return The grid of every take profit with every stop loss risk, to be evaluated in the same tick replay
+   */
+  public static @NonNull List<RangerProfit> getRangerProfits(final @NonNull Collection<BigDecimal> takeProfits, final @NonNull Collection<BigDecimal> riskStopLosses) {
+    return takeProfits.stream().flatMap(takeProfit -> riskStopLosses.stream().map(riskStopLoss -> getRangerProfit(takeProfit, riskStopLoss))).distinct().toList();
   }
 
   public static @NonNull Map<TimeScope, List<PreTrade>> getTimeScopeListMap(final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol, final @NonNull List<Candlestick> candlestickList) {
+    return getTimeScopeListMap(timeFrame, symbol, candlestickList, List.of(getRangerProfit()));
+  }
+
+  public static @NonNull Map<TimeScope, List<PreTrade>> getTimeScopeListMap(final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol, final @NonNull List<Candlestick> candlestickList,
+      final @NonNull List<RangerProfit> rangerProfits) {
     final Map<TimeScope, List<PreTrade>> timeScopeMapMap = candlestickList.stream()
-        .map(candlestick -> new PreTrade(getRangerProfit(), new TimeScope(candlestick.getOpenTickTimestamp().getDayOfWeek(), candlestick.getOpenTickTimestamp().getHour() / timeFrame.getSlotTimeH()), candlestick.getSignalIndicator(), candlestick.getOpenTickTimestamp()))
+        .map(candlestick -> new PreTrade(rangerProfits, new TimeScope(candlestick.getOpenTickTimestamp().getDayOfWeek(), candlestick.getOpenTickTimestamp().getHour() / timeFrame.getSlotTimeH()), candlestick.getSignalIndicator(), candlestick.getOpenTickTimestamp()))
         .collect(Collectors.groupingBy(PreTrade::getTimeScope));
     log.info("We have {} TimeScope to analise in symbol {} at timeframe {}", timeScopeMapMap.size(), symbol.name(), timeFrame.name());
     return timeScopeMapMap;
   }
 
   public static @NonNull List<Candlestick> getCandlestickList(final @NonNull File inputFile, final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol) {
-    log.info("Getting Candlesticks/Trades for symbol {} at timeframe {}", symbol.name(), timeFrame.name());
-
-    try (final BufferedReader bufferedReader = new BufferedReader(new FileReader(inputFile))) {
-      final Candlestick[] candlestickArray = CandlestickService.getCandlesticks(bufferedReader, timeFrame, symbol)
-          .filter(candlestick -> !SignalIndicator.NEUTRAL.equals(candlestick.getSignalIndicator())).toArray(Candlestick[]::new);
-      final LinkedList<Candlestick> candlestickList = new LinkedList<>();
-      for (int i = 0; i < candlestickArray.length; i++) {
-        candlestickList.add(candlestickArray[i]);
-        LocalDateTime time = candlestickArray[i].getTimestamp();
-        for (int j = i + 1; j < candlestickArray.length; j++, i++) {
-          if (Frame.MINUTE.equals(timeFrame.getFrame())) {
-            time = time.plusMinutes(timeFrame.getTimeValue());
-          } else {
-            time = time.plusHours(timeFrame.getTimeValue());
-          }
-          if (!time.equals(candlestickArray[j].getTimestamp()) || !candlestickArray[i].getSignalIndicator().equals(candlestickArray[j].getSignalIndicator())) {
-            break;
-          }
-        }
-      }
+    return getCandlestickLists(inputFile, List.of(timeFrame), symbol).get(timeFrame);
+  }
+
+  /**
+   * Get the candlesticks/trades of every timeframe from the {@link CandlestickStoreService} stores of the input file, built in one pass over its ticks, kept
+   * in a {@link CandlestickSeries} by timeframe. With {@code -Dpreprocessor.delta=true} the pass only covers the ticks after the {@link CheckpointService}
+   * checkpoint of the file. When the {@link ResultCacheService} has the candlesticks of the file content, there is no pass at all.
+   */
+  public static @NonNull Map<TimeFrame, List<Candlestick>> getCandlestickLists(final @NonNull File inputFile, final @NonNull Collection<TimeFrame> timeFrames, final @NonNull Symbol symbol) {
+    log.info("Getting Candlesticks/Trades for symbol {} at timeframes {}", symbol.name(), timeFrames);
+    final long start = System.nanoTime();
+
+    final Map<TimeFrame, CandlestickSeries> cachedCandlesticksMap = ResultCacheService.getCandlestickSeries(inputFile, timeFrames, OFF_HEAP_SERIES);
+    if (Objects.nonNull(cachedCandlesticksMap)) {
+      AGGREGATE_DURATION.recordSince(start);
+      return new EnumMap<>(cachedCandlesticksMap);
+    }
 
+    final Map<TimeFrame, CandlestickSeries> timeFrameCandlesticksMap = getCandlestickSeries(inputFile, timeFrames, symbol);
+    final Map<TimeFrame, CandlestickSeries> candlestickListsMap = timeFrames.stream().collect(Collectors.toMap(timeFrame -> timeFrame, timeFrame -> {
+      final CandlestickSeries candlestickList = getCandlestickList(timeFrameCandlesticksMap.getOrDefault(timeFrame, new CandlestickSeries(OFF_HEAP_SERIES)), timeFrame);
       log.info("We have {} candlesticks not neutral in symbol {} at timeframe {}", candlestickList.size(), symbol.name(), timeFrame.name());
       return candlestickList;
-    } catch (IOException e) {
-      throw new IllegalStateException(e);
+    }, (a, b) -> a, () -> new EnumMap<>(TimeFrame.class)));
+    ResultCacheService.putCandlestickSeries(inputFile, candlestickListsMap);
+    AGGREGATE_DURATION.recordSince(start);
+    return new EnumMap<>(candlestickListsMap);
+  }
+
+  /**
+   * @return The not neutral candlesticks of every timeframe, from the {@link CandlestickStoreService} stores of the input file
+   */
+  private static @NonNull Map<TimeFrame, CandlestickSeries> getCandlestickSeries(final @NonNull File inputFile, final @NonNull Collection<TimeFrame> timeFrames, final @NonNull Symbol symbol) {
+    final Map<TimeFrame, CandlestickSeries> timeFrameSeriesMap = new EnumMap<>(TimeFrame.class);
+    CandlestickStoreService.getCandlestickStores(inputFile, timeFrames, symbol).forEach((timeFrame, candlestickStore) -> {
+      final CandlestickSeries candlesticks = candlestickStore.getCandlesticks();
+      final CandlestickSeries candlestickSeries = new CandlestickSeries(OFF_HEAP_SERIES);
+      for (int i = 0; i < candlesticks.size(); i++) {
+        if (!SignalIndicator.NEUTRAL.equals(candlesticks.getSignalIndicator(i))) {
+          candlestickSeries.add(candlesticks, i);
+        }
+      }
+      timeFrameSeriesMap.put(timeFrame, candlestickSeries);
+    });
+    return timeFrameSeriesMap;
+  }
+
+  private static @NonNull CandlestickSeries getCandlestickList(final @NonNull CandlestickSeries candlestickSeries, final @NonNull TimeFrame timeFrame) {
+    final CandlestickSeries candlestickList = new CandlestickSeries(candlestickSeries.isOffHeap());
+    for (int i = 0; i < candlestickSeries.size(); i++) {
+      candlestickList.add(candlestickSeries, i);
+      LocalDateTime time = candlestickSeries.getTimestamp(i);
+      for (int j = i + 1; j < candlestickSeries.size(); j++, i++) {
+        if (Frame.MINUTE.equals(timeFrame.getFrame())) {
+          time = time.plusMinutes(timeFrame.getTimeValue());
+        } else {
+          time = time.plusHours(timeFrame.getTimeValue());
+        }
+        if (!time.equals(candlestickSeries.getTimestamp(j)) || !candlestickSeries.getSignalIndicator(i).equals(candlestickSeries.getSignalIndicator(j))) {
+          break;
+        }
+      }
     }
+    return candlestickList;
   }
 
   public static Trade getTrade(final @NonNull File inputFile, final @NonNull Symbol symbol, final List<PreTrade> profitListMap, final @NonNull TimeScope timeScope, final RangerProfit rangerProfit, final TimeFrame timeFrame) {
+    return getTrades(inputFile, symbol, Map.of(timeFrame, Map.of(timeScope, profitListMap))).get(timeFrame).stream()
+        .filter(rangerProfit::isProfitOf).findFirst().orElse(null);
+  }
 
-    try (final BufferedReader tickTradeBufferedReader = new BufferedReader(new FileReader(inputFile))) {
-      final Tick soptTick = TickService.getTicks(tickTradeBufferedReader).filter(tickTickPair -> processTickProfitAndGetBadPercent(symbol, profitListMap, tickTickPair)).findFirst().map(Pair::getKey).orElse(null);
-      if(Objects.nonNull(soptTick)) {
-        log.warn("Trade Process {} - {}h from {} symbol at timeframe {} not stop on the END at {}", timeScope.getWeek().toString(), timeScope.hour, symbol.name(), timeFrame, soptTick.getDateTime().toString());
-      } else {
-        log.info("Trade Process {} - {}h from {} symbol at timeframe {} stop on the END", timeScope.getWeek().toString(), timeScope.hour, symbol.name(), timeFrame);
+  /**
+   * Resolve the {@link PreTrade} lists of every {@link TimeScope} of every {@link TimeFrame} together, for every {@link RangerProfit} of the {@link PreTrade}
+   * grid. By default the TP/SL hits are searched in the {@link TickIndexService} index of the tick file, {@code -Dtrade.tickReplay=true} replays the tick file
+   * once and advances every pre-trade tick by tick instead, starting at the first pre-trade open, searched in the cache, nothing happening in the
+   * ticks before it.
+   *
+   * @return The trades by timeframe, one by time scope and ranger profit, only with the ones that hit the target
+   */
+  public static @NonNull Map<TimeFrame, List<Trade>> getTrades(final @NonNull File inputFile, final @NonNull Symbol symbol, final @NonNull Map<TimeFrame, Map<TimeScope, List<PreTrade>>> timeFrameScopeMap) {
+    final long start = System.nanoTime();
+    final List<ScopeSimulation> scopeSimulations = timeFrameScopeMap.entrySet().stream()
+        .flatMap(timeFrameEntry -> timeFrameEntry.getValue().entrySet().stream().map(timeScopeEntry -> new ScopeSimulation(timeFrameEntry.getKey(), timeScopeEntry.getKey(), timeScopeEntry.getValue())))
+        .toList();
+    if (Boolean.getBoolean(TICK_REPLAY_PROPERTY) || PriceUtils.getPipFactor(symbol.getFixedPip()) == 0L) {
+      log.info("Simulating {} time scopes from {} symbol in one tick replay", scopeSimulations.size(), symbol.name());
+      final LocalDateTime firstOpenTimestamp = scopeSimulations.stream().flatMap(scopeSimulation -> scopeSimulation.getPreTrades().stream())
+          .map(PreTrade::getOpenTickTimestamp).min(Comparator.naturalOrder()).orElse(null);
+      try (final Stream<Pair<Tick, Tick>> ticks = Objects.isNull(firstOpenTimestamp) ? TickCacheService.getTicks(inputFile) : TickCacheService.getTicks(inputFile, firstOpenTimestamp)) {
+        ticks.filter(tickTickPair -> {
+          scopeSimulations.stream().filter(scopeSimulation -> !scopeSimulation.isStopped()).forEach(scopeSimulation -> processTick(symbol, scopeSimulation, tickTickPair));
+          return scopeSimulations.stream().allMatch(ScopeSimulation::isStopped);
+        }).findFirst();
       }
-    } catch (IOException e) {
-      throw new IllegalStateException(e);
+    } else {
+      log.info("Simulating {} time scopes from {} symbol with the tick index", scopeSimulations.size(), symbol.name());
+      final TickIndex tickIndex = TickIndexService.getTickIndex(TickCacheService.getTickCache(inputFile));
+      scopeSimulations.parallelStream().forEach(scopeSimulation -> processIndex(symbol, scopeSimulation, tickIndex));
     }
 
-    final long numberPreTradesTP = profitListMap.stream().filter(preTrade -> OrderStatus.TAKE_PROFIT.equals(preTrade.getOrderStatus())).count();
-    final long numberPreTradesSL = profitListMap.stream().filter(preTrade -> OrderStatus.STOP_LOSS.equals(preTrade.getOrderStatus())).count();
+    final Map<TimeFrame, List<Trade>> timeFrameTradesMap = timeFrameScopeMap.keySet().stream().collect(Collectors.toMap(timeFrame -> timeFrame, timeFrame -> new LinkedList<>()));
+    scopeSimulations.forEach(scopeSimulation -> {
+      final TimeScope timeScope = scopeSimulation.getTimeScope();
+      final TimeFrame timeFrame = scopeSimulation.getTimeFrame();
+      for (int i = 0; i < scopeSimulation.getRangerProfits().size(); i++) {
+        final RangerProfit rangerProfit = scopeSimulation.getRangerProfits().get(i);
+        if (scopeSimulation.isStopped(i)) {
+          SCOPES_STOPPED.increment();
+          log.debug("Trade Process {} - {}h from {} symbol at timeframe {} with TP {} SL {} not stop on the END at {}", timeScope.getWeek().toString(), timeScope.hour, symbol.name(), timeFrame,
+              rangerProfit.getTakeProfit(), rangerProfit.getStopLoss(), scopeSimulation.getStopTick(i).getDateTime().toString());
+        } else {
+          SCOPES_COMPLETED.increment();
+          log.debug("Trade Process {} - {}h from {} symbol at timeframe {} with TP {} SL {} stop on the END", timeScope.getWeek().toString(), timeScope.hour, symbol.name(), timeFrame,
+              rangerProfit.getTakeProfit(), rangerProfit.getStopLoss());
+        }
+        final Trade trade = getTrade(scopeSimulation.getPreTrades(), timeScope, rangerProfit, i);
+        if (Objects.nonNull(trade)) {
+          timeFrameTradesMap.get(timeFrame).add(trade);
+        }
+      }
+    });
+    SIMULATE_DURATION.recordSince(start);
+    return timeFrameTradesMap;
+  }
+
+  /**
+   * @return The counter of the positions of one take profit and stop loss pair of the grid, a pre-trade being a position of every pair it is simulated with,
+   * so the counters are per pair and not summed over the grid
+   */
+  private static @NonNull Counter getPositionCounter(final @NonNull String name, final @NonNull RangerProfit rangerProfit, final String @NonNull ... labels) {
+    final String[] pairLabels = Arrays.copyOf(labels, labels.length + 4);
+    pairLabels[labels.length] = "take_profit";
+    pairLabels[labels.length + 1] = rangerProfit.getTakeProfit().toPlainString();
+    pairLabels[labels.length + 2] = "stop_loss";
+    pairLabels[labels.length + 3] = rangerProfit.getStopLoss().toPlainString();
+    return MetricsService.getCounter(name, pairLabels);
+  }
+
+  private static Trade getTrade(final @NonNull List<PreTrade> profitListMap, final @NonNull TimeScope timeScope, final @NonNull RangerProfit rangerProfit, final int rangerIndex) {
+    final long numberPreTradesTP = profitListMap.stream().filter(preTrade -> OrderStatus.TAKE_PROFIT.equals(preTrade.getOrderStatus(rangerIndex))).count();
+    final long numberPreTradesSL = profitListMap.stream().filter(preTrade -> OrderStatus.STOP_LOSS.equals(preTrade.getOrderStatus(rangerIndex))).count();
     final long numberPreTradesTotal = numberPreTradesTP + numberPreTradesSL;
+    getPositionCounter(POSITIONS_OPENED, rangerProfit).add(profitListMap.stream().filter(preTrade -> preTrade.isOpened(rangerIndex)).count());
+    getPositionCounter(POSITIONS_CLOSED, rangerProfit, "outcome", "take_profit").add(numberPreTradesTP);
+    getPositionCounter(POSITIONS_CLOSED, rangerProfit, "outcome", "stop_loss").add(numberPreTradesSL);
     final BigDecimal hitPercentage =
         numberPreTradesTotal == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(numberPreTradesTP).divide(BigDecimal.valueOf(numberPreTradesTotal), MathUtils.SCALE, MathUtils.ROUNDING_MODE);
-    final BigDecimal profitTotal = profitListMap.stream().filter(preTrade -> !OrderStatus.OPEN.equals(preTrade.getOrderStatus())).map(PreTrade::getProfit).reduce(BigDecimal.ZERO, BigDecimal::add);
+    final BigDecimal profitTotal = profitListMap.stream().filter(preTrade -> !OrderStatus.OPEN.equals(preTrade.getOrderStatus(rangerIndex))).map(preTrade -> preTrade.getProfit(rangerIndex))
+        .reduce(BigDecimal.ZERO, BigDecimal::add);
 
     if (hitPercentage.compareTo(TP_TARGET) >= 0) {
-      return new Trade(rangerProfit.getStopLoss().intValue(), rangerProfit.getTakeProfit().intValue(), timeScope.getWeek(), timeScope.getHour(), numberPreTradesTotal, numberPreTradesTP,
+      return new Trade(rangerProfit.getStopLoss(), rangerProfit.getTakeProfit(), timeScope.getWeek(), timeScope.getHour(), numberPreTradesTotal, numberPreTradesTP,
           numberPreTradesSL, hitPercentage, profitTotal);
     } else {
       return null;
     }
   }
 
-  private static boolean processTickProfitAndGetBadPercent(final Symbol symbol, final @NonNull List<PreTrade> profitListMap, final Pair<Tick, Tick> tickTickPair) {
-    final Collection<OrderStatus> orderStatuses = profitListMap.stream().map(preTrade -> {
-      if(preTrade.getOrderStatus().equals(OrderStatus.OPEN)) {
-        final Tick currentTick = tickTickPair.getKey();
-        if (currentTick.getDateTime().isAfter(preTrade.getOpenTickTimestamp())) {
-          final Tick lastTick = tickTickPair.getValue();
-          final BigDecimal tmpProfit = preTrade.getSignalIndicator().getOrderType().getProfit(lastTick, currentTick, symbol);
-          preTrade.setProfit(preTrade.getProfit().add(tmpProfit));
-        } else if (currentTick.getDateTime().isEqual(preTrade.getOpenTickTimestamp())) {
-          preTrade.setProfit(currentTick.getSpread());
+  /**
+   * Find the TP/SL hit of every pre-trade of the scope in the tick index, then stop each ranger profit at the first hit with a bad percent, as the tick replay
+   * would.
+   */
+  private static void processIndex(final Symbol symbol, final @NonNull ScopeSimulation scopeSimulation, final @NonNull TickIndex tickIndex) {
+    final TickCache tickCache = tickIndex.getTickCache();
+    final List<IndexPosition> positions = scopeSimulation.getPreTrades().stream().map(preTrade -> new IndexPosition(symbol, tickIndex, preTrade)).toList();
+    for (int i = 0; i < scopeSimulation.getRangerProfits().size(); i++) {
+      final RangerProfit rangerProfit = scopeSimulation.getRangerProfits().get(i);
+      final long[] hitTicks = positions.stream().mapToLong(position -> position.getHitTick(rangerProfit)).toArray();
+      final long[] stopLossTicks = IntStream.range(0, hitTicks.length)
+          .filter(j -> hitTicks[j] >= 0 && positions.get(j).getFixedProfit(hitTicks[j]) <= rangerProfit.getFixedStopLoss()).mapToLong(j -> hitTicks[j]).sorted().toArray();
+
+      final int stopLossLimit = (int) scopeSimulation.getStopLossLimit();
+      final long stopTick = stopLossLimit > 0 && stopLossTicks.length >= stopLossLimit ? stopLossTicks[stopLossLimit - 1] : -1;
+
+      final long lastTick = stopTick >= 0 ? stopTick : tickCache.getSize() - 1;
+      for (int j = 0; j < positions.size(); j++) {
+        final IndexPosition position = positions.get(j);
+        if (position.getFirstTick() <= lastTick) {
+          position.getPreTrade().setOpened(i);
+        }
+        if (hitTicks[j] >= 0 && hitTicks[j] <= lastTick) {
+          final long fixedProfit = position.getFixedProfit(hitTicks[j]);
+          position.getPreTrade().setResult(i, fixedProfit >= rangerProfit.getFixedTakeProfit() ? OrderStatus.TAKE_PROFIT : OrderStatus.STOP_LOSS, fixedProfit);
+        } else {
+          position.getPreTrade().setResult(i, OrderStatus.OPEN, position.getFixedProfit(lastTick));
         }
       }
-      return preTrade.getOrderStatus();
-    }).toList();
-    final long goodNum = orderStatuses.stream().filter(orderStatus -> orderStatus.equals(OrderStatus.OPEN) || orderStatus.equals(OrderStatus.TAKE_PROFIT)).count();
-    return MathUtils.getDivision(BigDecimal.valueOf(goodNum), BigDecimal.valueOf(orderStatuses.size())).compareTo(TP_TARGET) < 0;
+      if (stopTick >= 0) {
+        scopeSimulation.setStopTick(i, tickCache.getTick(stopTick));
+      }
+    }
+  }
+
+  /**
+   * Advance the running profit of the open pre-trades of the scope, resolve them for every ranger profit not stopped yet and stop the ranger profits with a bad
+   * percent.
+   */
+  private static void processTick(final Symbol symbol, final @NonNull ScopeSimulation scopeSimulation, final Pair<Tick, Tick> tickTickPair) {
+    final Tick currentTick = tickTickPair.getKey();
+    final int rangerSize = scopeSimulation.getRangerProfits().size();
+    scopeSimulation.activatePreTrades(currentTick);
+    int active = 0;
+    while (active < scopeSimulation.getActiveSize()) {
+      final PreTrade preTrade = scopeSimulation.getActivePreTrade(active);
+      if (currentTick.getDateTime().isAfter(preTrade.getOpenTickTimestamp())) {
+        final Tick lastTick = tickTickPair.getValue();
+        final long tmpProfit = preTrade.getSignalIndicator().getOrderType().getProfit(lastTick, currentTick, symbol);
+        preTrade.setFixedProfit(preTrade.getFixedProfit() + tmpProfit);
+      } else if (currentTick.getDateTime().isEqual(preTrade.getOpenTickTimestamp())) {
+        preTrade.setFixedProfit(PriceUtils.toFixedProfit(currentTick.getSpread()));
+      }
+      for (int i = 0; i < rangerSize; i++) {
+        if (!scopeSimulation.isStopped(i) && OrderStatus.OPEN.equals(preTrade.getOrderStatus(i))) {
+          scopeSimulation.addOrderStatus(i, preTrade.resolve(i));
+        }
+      }
+      if (preTrade.isOpen(scopeSimulation)) {
+        active++;
+      } else {
+        scopeSimulation.removeActivePreTrade(active);
+      }
+    }
+    for (int i = 0; i < rangerSize; i++) {
+      if (!scopeSimulation.isStopped(i) && scopeSimulation.isBadPercent(i)) {
+        scopeSimulation.setStopTick(i, currentTick);
+      }
+    }
   }
 
   @Getter
   @EqualsAndHashCode
-  @RequiredArgsConstructor
   public class RangerProfit {
 
     private final BigDecimal takeProfit;
     private final BigDecimal stopLoss;
+    private final long fixedTakeProfit;
+    private final long fixedStopLoss;
+
+    public RangerProfit(final @NonNull BigDecimal takeProfit, final @NonNull BigDecimal stopLoss) {
+      this.takeProfit = takeProfit;
+      this.stopLoss = stopLoss;
+      this.fixedTakeProfit = PriceUtils.toFixedProfit(takeProfit);
+      this.fixedStopLoss = PriceUtils.toFixedProfit(stopLoss);
+    }
+
+    /**
+     * @return If the trade was resolved with this take profit and stop loss, whatever the scale of the values
+     */
+    public boolean isProfitOf(final @NonNull Trade trade) {
+      return this.takeProfit.compareTo(trade.getTakeProfit()) == 0 && this.stopLoss.compareTo(trade.getStopLoss()) == 0;
+    }
+
+    /**
+     * @return The take profit and stop loss as a file name suffix, e.g. {@code _TP7.5_SL-5.25}
+     */
+    public @NonNull String getSuffix() {
+      return "_TP" + this.takeProfit.stripTrailingZeros().toPlainString() + "_SL" + this.stopLoss.stripTrailingZeros().toPlainString();
+    }
   }
 
   @Getter
@@ -154,26 +366,298 @@ public class TradeService {
     private final int hour;
   }
 
+  /**
+   * Replay state of the pre-trades of one time scope, with the tick where each ranger profit of the grid stopped. The take profit and stop loss counters of
+   * each ranger profit only change when a pre-trade closes. The pre-trades wait in a queue sorted by open time until the replay reaches their open, and leave
+   * the active ones when they close, so a tick only touches the open positions.
+   */
+  @Getter
+  public class ScopeSimulation {
+
+    private final TimeFrame timeFrame;
+    private final TimeScope timeScope;
+    private final List<PreTrade> preTrades;
+    private final List<RangerProfit> rangerProfits;
+    private final Tick[] stopTicks;
+    private int stoppedNum;
+    @Getter(AccessLevel.NONE)
+    private final long[] takeProfitNums;
+    @Getter(AccessLevel.NONE)
+    private final long[] stopLossNums;
+    private final long stopLossLimit;
+    @Getter(AccessLevel.NONE)
+    private final PreTrade[] pendingPreTrades;
+    private int pendingIndex;
+    @Getter(AccessLevel.NONE)
+    private final PreTrade[] activePreTrades;
+    private int activeSize;
+
+    public ScopeSimulation(final @NonNull TimeFrame timeFrame, final @NonNull TimeScope timeScope, final @NonNull List<PreTrade> preTrades) {
+      this.timeFrame = timeFrame;
+      this.timeScope = timeScope;
+      this.preTrades = preTrades;
+      this.rangerProfits = preTrades.isEmpty() ? List.of() : preTrades.getFirst().getRangerProfits();
+      this.stopTicks = new Tick[this.rangerProfits.size()];
+      this.takeProfitNums = new long[this.rangerProfits.size()];
+      this.stopLossNums = new long[this.rangerProfits.size()];
+      this.stopLossLimit = getStopLossLimit(preTrades.size());
+      this.pendingPreTrades = preTrades.stream().sorted(Comparator.comparing(PreTrade::getOpenTickTimestamp)).toArray(PreTrade[]::new);
+      this.activePreTrades = new PreTrade[this.pendingPreTrades.length];
+    }
+
+    /**
+     * @return The smallest number of stop losses that leaves less than {@link #TP_TARGET} of the pre-trades open or at take profit
+     */
+    private static long getStopLossLimit(final int size) {
+      long stopLossNum = 0;
+      while (stopLossNum < size && MathUtils.getDivision(BigDecimal.valueOf(size - stopLossNum), BigDecimal.valueOf(size)).compareTo(TP_TARGET) >= 0) {
+        stopLossNum++;
+      }
+      return stopLossNum;
+    }
+
+    public long getTakeProfitNum(final int rangerIndex) {
+      return this.takeProfitNums[rangerIndex];
+    }
+
+    public long getStopLossNum(final int rangerIndex) {
+      return this.stopLossNums[rangerIndex];
+    }
+
+    public long getOpenNum(final int rangerIndex) {
+      return this.getPreTrades().size() - this.getTakeProfitNum(rangerIndex) - this.getStopLossNum(rangerIndex);
+    }
+
+    private void addOrderStatus(final int rangerIndex, final @NonNull OrderStatus orderStatus) {
+      switch (orderStatus) {
+        case TAKE_PROFIT -> this.takeProfitNums[rangerIndex]++;
+        case STOP_LOSS -> this.stopLossNums[rangerIndex]++;
+        case OPEN -> {
+        }
+      }
+    }
+
+    private boolean isBadPercent(final int rangerIndex) {
+      return this.getStopLossNum(rangerIndex) >= this.getStopLossLimit();
+    }
+
+    /**
+     * Move the pre-trades opened at or before the tick from the queue to the active ones.
+     */
+    private void activatePreTrades(final @NonNull Tick tick) {
+      while (this.pendingIndex < this.pendingPreTrades.length && !tick.getDateTime().isBefore(this.pendingPreTrades[this.pendingIndex].getOpenTickTimestamp())) {
+        for (int i = 0; i < this.stopTicks.length; i++) {
+          if (!this.isStopped(i)) {
+            this.pendingPreTrades[this.pendingIndex].setOpened(i);
+          }
+        }
+        this.activePreTrades[this.activeSize++] = this.pendingPreTrades[this.pendingIndex];
+        this.pendingPreTrades[this.pendingIndex++] = null;
+      }
+    }
+
+    private @NonNull PreTrade getActivePreTrade(final int active) {
+      return this.activePreTrades[active];
+    }
+
+    private void removeActivePreTrade(final int active) {
+      this.activePreTrades[active] = this.activePreTrades[--this.activeSize];
+      this.activePreTrades[this.activeSize] = null;
+    }
+
+    public Tick getStopTick(final int rangerIndex) {
+      return this.stopTicks[rangerIndex];
+    }
+
+    public void setStopTick(final int rangerIndex, final @NonNull Tick stopTick) {
+      if (Objects.isNull(this.stopTicks[rangerIndex])) {
+        this.stoppedNum++;
+      }
+      this.stopTicks[rangerIndex] = stopTick;
+    }
+
+    public boolean isStopped(final int rangerIndex) {
+      return Objects.nonNull(this.getStopTick(rangerIndex));
+    }
+
+    public boolean isStopped() {
+      return this.stoppedNum == this.stopTicks.length;
+    }
+  }
+
+  /**
+   * One signal replayed with a single running profit, resolved to take profit or stop loss independently for every {@link RangerProfit} of the grid.
+   */
   @Getter
-  @Setter
-  @RequiredArgsConstructor
   public class PreTrade {
 
-    private final RangerProfit rangerProfit;
+    private final List<RangerProfit> rangerProfits;
     private final TimeScope timeScope;
     private final SignalIndicator signalIndicator;
     private final LocalDateTime openTickTimestamp;
-    private BigDecimal profit = BigDecimal.ZERO;
+    @Setter
+    private long fixedProfit;
+    @Getter(AccessLevel.NONE)
+    private final OrderStatus[] orderStatuses;
+    @Getter(AccessLevel.NONE)
+    private final long[] fixedProfits;
+    @Getter(AccessLevel.NONE)
+    private final boolean[] openeds;
+
+    public PreTrade(final @NonNull List<RangerProfit> rangerProfits, final @NonNull TimeScope timeScope, final @NonNull SignalIndicator signalIndicator,
+        final @NonNull LocalDateTime openTickTimestamp) {
+      this.rangerProfits = rangerProfits;
+      this.timeScope = timeScope;
+      this.signalIndicator = signalIndicator;
+      this.openTickTimestamp = openTickTimestamp;
+      this.orderStatuses = new OrderStatus[rangerProfits.size()];
+      Arrays.fill(this.orderStatuses, OrderStatus.OPEN);
+      this.fixedProfits = new long[rangerProfits.size()];
+      this.openeds = new boolean[rangerProfits.size()];
+    }
+
+    /**
+     * @return True when the replay reached the open of the pre-trade before the ranger profit stopped
+     */
+    public boolean isOpened(final int rangerIndex) {
+      return this.openeds[rangerIndex];
+    }
+
+    private void setOpened(final int rangerIndex) {
+      this.openeds[rangerIndex] = true;
+    }
+
+    /**
+     * @return The profit when resolved for the ranger profit, or the running profit of its last replayed tick while open
+     */
+    public BigDecimal getProfit(final int rangerIndex) {
+      return PriceUtils.toProfit(this.fixedProfits[rangerIndex]);
+    }
+
+    public OrderStatus getOrderStatus(final int rangerIndex) {
+      return this.orderStatuses[rangerIndex];
+    }
+
+    public BigDecimal getProfit() {
+      return this.getProfit(0);
+    }
 
     public OrderStatus getOrderStatus() {
-      if (this.getProfit().compareTo(this.getRangerProfit().getTakeProfit()) >= 0) {
-        return OrderStatus.TAKE_PROFIT;
-      } else if (this.getProfit().compareTo(this.getRangerProfit().getStopLoss()) <= 0) {
-        return OrderStatus.STOP_LOSS;
-      } else {
-        return OrderStatus.OPEN;
+      return this.getOrderStatus(0);
+    }
+
+    /**
+     * @return True while one ranger profit not stopped in the scope is still open
+     */
+    private boolean isOpen(final @NonNull ScopeSimulation scopeSimulation) {
+      for (int i = 0; i < this.orderStatuses.length; i++) {
+        if (OrderStatus.OPEN.equals(this.orderStatuses[i]) && !scopeSimulation.isStopped(i)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private void setResult(final int rangerIndex, final @NonNull OrderStatus orderStatus, final long fixedProfit) {
+      this.orderStatuses[rangerIndex] = orderStatus;
+      this.fixedProfits[rangerIndex] = fixedProfit;
+    }
+
+    /**
+     * Follow the running profit for the ranger profit and close it the first time it crosses the take profit or the stop loss.
+     */
+    private OrderStatus resolve(final int rangerIndex) {
+      if (OrderStatus.OPEN.equals(this.orderStatuses[rangerIndex])) {
+        final RangerProfit rangerProfit = this.getRangerProfits().get(rangerIndex);
+        if (this.getFixedProfit() >= rangerProfit.getFixedTakeProfit()) {
+          this.orderStatuses[rangerIndex] = OrderStatus.TAKE_PROFIT;
+        } else if (this.getFixedProfit() <= rangerProfit.getFixedStopLoss()) {
+          this.orderStatuses[rangerIndex] = OrderStatus.STOP_LOSS;
+        }
+        this.fixedProfits[rangerIndex] = this.getFixedProfit();
       }
+      return this.orderStatuses[rangerIndex];
     }
   }
 
+  /**
+   * A pre-trade located in the tick index. Between two swap ticks its profit is linear in the bid (BUY) or the ask (SELL) of the tick, so each TP/SL hit is a
+   * price threshold crossing.
+   */
+  @Getter
+  private class IndexPosition {
+
+    private final PreTrade preTrade;
+    private final TickIndex tickIndex;
+    private final boolean buy;
+    private final long pipFactor;
+    private final long fixedSwap;
+    private final long firstTick;
+    private final int firstSwap;
+    private final long anchorPrice;
+    private final long baseProfit;
+
+    private IndexPosition(final @NonNull Symbol symbol, final @NonNull TickIndex tickIndex, final @NonNull PreTrade preTrade) {
+      final TickCache tickCache = tickIndex.getTickCache();
+      this.preTrade = preTrade;
+      this.tickIndex = tickIndex;
+      this.buy = OrderType.BUY.equals(preTrade.getSignalIndicator().getOrderType());
+      this.pipFactor = PriceUtils.getPipFactor(symbol.getFixedPip());
+      this.fixedSwap = this.buy ? symbol.getFixedSwapLong() : symbol.getFixedSwapShort();
+
+      // the open tick sets the profit to the spread, without an open tick the profit starts from the last tick before the open
+      final long openTimestamp = DateTimeUtils.toEpochMilli(preTrade.getOpenTickTimestamp());
+      this.firstTick = tickIndex.getFirstTick(openTimestamp);
+      final boolean openTick = this.firstTick < tickCache.getSize() && tickCache.getTimestamp(this.firstTick) == openTimestamp;
+      final Tick anchorTick = openTick ? tickCache.getTick(this.firstTick) : this.firstTick > 0 ? tickCache.getTick(this.firstTick - 1) : TickService.getInitTick();
+      this.anchorPrice = this.getPrice(anchorTick.getFixedBid(), anchorTick.getFixedAsk());
+      this.baseProfit = openTick ? PriceUtils.toFixedProfit(anchorTick.getSpread()) : 0L;
+      this.firstSwap = tickIndex.getNextSwap(openTick ? this.firstTick + 1 : this.firstTick);
+    }
+
+    private long getPrice(final long fixedBid, final long fixedAsk) {
+      return this.buy ? fixedBid : fixedAsk;
+    }
+
+    /**
+     * @return The running profit at the tick, 0 before the open
+     */
+    private long getFixedProfit(final long tick) {
+      if (tick < this.getFirstTick()) {
+        return 0L;
+      }
+      final TickCache tickCache = this.getTickIndex().getTickCache();
+      final long price = this.getPrice(tickCache.getFixedBid(tick), tickCache.getFixedAsk(tick));
+      final long swaps = Math.max(0, this.getTickIndex().getNextSwap(tick + 1) - this.getFirstSwap());
+      return this.getBaseProfit() + (this.isBuy() ? price - this.getAnchorPrice() : this.getAnchorPrice() - price) * this.getPipFactor() + swaps * this.getFixedSwap();
+    }
+
+    /**
+     * @return The first tick where the running profit reaches the take profit or the stop loss, or -1 when it never does
+     */
+    private long getHitTick(final @NonNull RangerProfit rangerProfit) {
+      final long size = this.getTickIndex().getTickCache().getSize();
+      long from = this.getFirstTick();
+      int swap = this.getFirstSwap();
+      long swapProfit = 0L;
+      while (from < size) {
+        final long to = this.getTickIndex().getSwapTick(swap) - 1;
+        if (from <= to) {
+          final long takeProfitDistance = Math.ceilDiv(rangerProfit.getFixedTakeProfit() - this.getBaseProfit() - swapProfit, this.getPipFactor());
+          final long stopLossDistance = Math.floorDiv(rangerProfit.getFixedStopLoss() - this.getBaseProfit() - swapProfit, this.getPipFactor());
+          final long takeProfitTick = this.isBuy() ? this.getTickIndex().findFirst(false, true, from, to, this.getAnchorPrice() + takeProfitDistance)
+              : this.getTickIndex().findFirst(true, false, from, to, this.getAnchorPrice() - takeProfitDistance);
+          final long stopLossTick = this.isBuy() ? this.getTickIndex().findFirst(false, false, from, to, this.getAnchorPrice() + stopLossDistance)
+              : this.getTickIndex().findFirst(true, true, from, to, this.getAnchorPrice() - stopLossDistance);
+          if (takeProfitTick >= 0 || stopLossTick >= 0) {
+            return takeProfitTick < 0 ? stopLossTick : stopLossTick < 0 ? takeProfitTick : Math.min(takeProfitTick, stopLossTick);
+          }
+          from = to + 1;
+        }
+        swapProfit += this.getFixedSwap();
+        swap++;
+      }
+      return -1;
+    }
+  }
 }
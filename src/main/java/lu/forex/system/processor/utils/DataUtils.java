@@ -0,0 +1,37 @@
+package lu.forex.system.processor.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Objects;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class DataUtils {
+
+  /**
+   * Write a nullable decimal as its scale and unscaled value, so it reads back equal, scale included.
+   */
+  public static void writeDecimal(final BigDecimal value, final @NonNull DataOutput dataOutput) throws IOException {
+    dataOutput.writeBoolean(Objects.nonNull(value));
+    if (Objects.nonNull(value)) {
+      final byte[] unscaledValue = value.unscaledValue().toByteArray();
+      dataOutput.writeInt(value.scale());
+      dataOutput.writeShort(unscaledValue.length);
+      dataOutput.write(unscaledValue);
+    }
+  }
+
+  public static BigDecimal readDecimal(final @NonNull DataInput dataInput) throws IOException {
+    if (!dataInput.readBoolean()) {
+      return null;
+    }
+    final int scale = dataInput.readInt();
+    final byte[] unscaledValue = new byte[dataInput.readShort()];
+    dataInput.readFully(unscaledValue);
+    return new BigDecimal(new BigInteger(unscaledValue), scale);
+  }
+}
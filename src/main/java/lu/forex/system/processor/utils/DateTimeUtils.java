@@ -0,0 +1,21 @@
+package lu.forex.system.processor.utils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class DateTimeUtils {
+
+  private static final long MILLIS_PER_SECOND = 1000L;
+  private static final int NANOS_PER_MILLI = 1_000_000;
+
+  public static long toEpochMilli(final @NonNull LocalDateTime dateTime) {
+    return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+
+  public static @NonNull LocalDateTime fromEpochMilli(final long epochMilli) {
+    return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMilli, MILLIS_PER_SECOND), (int) Math.floorMod(epochMilli, MILLIS_PER_SECOND) * NANOS_PER_MILLI, ZoneOffset.UTC);
+  }
+}
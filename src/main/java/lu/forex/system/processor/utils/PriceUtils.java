@@ -0,0 +1,60 @@
+package lu.forex.system.processor.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Fixed-point representation of prices and profits. Prices are kept as a {@code long} of {@link #PRICE_SCALE} decimals, which is exact for every
+ * {@link lu.forex.system.processor.enums.Symbol} pip, and profits as a {@code long} of {@link #PROFIT_SCALE} decimals of pip. {@link BigDecimal} is only
+ * created at the reporting edge.
+ */
+@UtilityClass
+public class PriceUtils {
+
+  public static final int PRICE_SCALE = 5;
+  public static final int PROFIT_SCALE = 6;
+  private static final long PROFIT_FACTOR = 1_000_000L;
+  private static final double PRICE_FACTOR = 100_000.0;
+
+  /**
+   * @throws ArithmeticException when the price has more decimals than {@link #PRICE_SCALE}
+   */
+  public static long toFixedPrice(final @NonNull BigDecimal price) {
+    return price.setScale(PRICE_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+  }
+
+  public static @NonNull BigDecimal toPrice(final long fixedPrice) {
+    return BigDecimal.valueOf(fixedPrice, PRICE_SCALE);
+  }
+
+  public static double toDoublePrice(final long fixedPrice) {
+    return fixedPrice / PRICE_FACTOR;
+  }
+
+  /**
+   * @throws ArithmeticException when the profit has more decimals than {@link #PROFIT_SCALE}
+   */
+  public static long toFixedProfit(final @NonNull BigDecimal profit) {
+    return profit.setScale(PROFIT_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+  }
+
+  public static @NonNull BigDecimal toProfit(final long fixedProfit) {
+    return BigDecimal.valueOf(fixedProfit, PROFIT_SCALE);
+  }
+
+  /**
+   * @return The fixed price difference counted in pips of the given fixed pip
+   */
+  public static long getFixedPips(final long fixedPriceDifference, final long fixedPip) {
+    return fixedPriceDifference * PROFIT_FACTOR / fixedPip;
+  }
+
+  /**
+   * @return The fixed pips of one fixed price unit, or 0 when the pip doesn't divide the profit scale and {@link #getFixedPips(long, long)} is not linear
+   */
+  public static long getPipFactor(final long fixedPip) {
+    return PROFIT_FACTOR % fixedPip == 0 ? PROFIT_FACTOR / fixedPip : 0L;
+  }
+}
@@ -1,19 +1,21 @@
 package lu.forex.system.processor.utils;
 
 import com.opencsv.CSVWriter;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.DayOfWeek;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import lombok.NonNull;
@@ -22,33 +24,79 @@ import lombok.experimental.UtilityClass;
 import lombok.extern.log4j.Log4j2;
 import lu.forex.system.processor.enums.Symbol;
 import lu.forex.system.processor.enums.TimeFrame;
+import lu.forex.system.processor.models.Candlestick;
+import lu.forex.system.processor.models.CandlestickSeries;
 import lu.forex.system.processor.models.Tick;
 import lu.forex.system.processor.models.Trade;
 import lu.forex.system.processor.services.CandlestickService;
-import lu.forex.system.processor.services.TickService;
+import lu.forex.system.processor.services.CandlestickStoreService;
+import lu.forex.system.processor.services.CandlestickStoreService.CandlestickStore;
+import lu.forex.system.processor.services.TickCacheService;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
 @Log4j2
 @UtilityClass
 public class PrintsUtils {
 
-  @SneakyThrows
+  private static final int ROW_ACCESS_WINDOW = 100;
+
+  /**
+   * Workbook that keeps only the last {@value #ROW_ACCESS_WINDOW} rows of each sheet in memory and spills the older ones to compressed temporary files.
+   */
+  private static @NonNull SXSSFWorkbook getStreamingWorkbook() {
+    final SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+    workbook.setCompressTempFiles(true);
+    return workbook;
+  }
+
+  private static void writeWorkbook(final @NonNull SXSSFWorkbook workbook, final @NonNull File outputFile) throws IOException {
+    try (final OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+      workbook.write(outputStream);
+    } finally {
+      workbook.dispose();
+    }
+  }
+
   public static void printCandlesticksExcel(final @NonNull BufferedReader bufferedReader, final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol,
       final @NonNull File outputFolder) {
+    printCandlesticksExcel(CandlestickService.getCandlesticks(bufferedReader, timeFrame, symbol), List.of(), timeFrame, symbol, outputFolder);
+  }
+
+  /**
+   * Print the candlesticks of the {@link CandlestickStoreService} store of the input file, with a column for every value set by name by the indicators.
+   */
+  public static void printCandlesticksExcel(final @NonNull File inputFile, final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol, final @NonNull File outputFolder) {
+    final CandlestickSeries candlesticks = CandlestickStoreService.getCandlestickStore(inputFile, timeFrame, symbol).getCandlesticks();
+    printCandlesticksExcel(candlesticks.stream(), candlesticks.getIndicatorNames(), timeFrame, symbol, outputFolder);
+  }
+
+  /**
+   * Print the candlesticks of the {@link CandlestickStoreService} store of the input file from the first timestamp, included, to the second, excluded, seeking
+   * the first one in the timestamps of the store instead of reading the candlesticks before it.
+   */
+  public static void printCandlesticksExcel(final @NonNull File inputFile, final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol, final @NonNull LocalDateTime from,
+      final @NonNull LocalDateTime to, final @NonNull File outputFolder) {
+    final CandlestickStore candlestickStore = CandlestickStoreService.getCandlestickStore(inputFile, timeFrame, symbol);
+    printCandlesticksExcel(candlestickStore.getCandlesticks(from, to).stream(), candlestickStore.getCandlesticks().getIndicatorNames(), timeFrame, symbol, outputFolder);
+  }
+
+  @SneakyThrows
+  private static void printCandlesticksExcel(final @NonNull Stream<Candlestick> candlesticks, final @NonNull List<String> indicatorNames, final @NonNull TimeFrame timeFrame,
+      final @NonNull Symbol symbol, final @NonNull File outputFolder) {
     log.info("Printing Candlesticks Excel for symbol {} at timeframe {}", symbol.name(), timeFrame.name());
-    try (final Workbook workbook = new XSSFWorkbook()) {
+    try (final SXSSFWorkbook workbook = getStreamingWorkbook()) {
       final Sheet sheet = workbook.createSheet(symbol.name());
       final Row headerRow = sheet.createRow(0);
-      final String[] header = new String[]{"Timestamp", "Open", "High", "Low", "Close", "ADX_adx", "ADX_+di(P)", "ADX_-di(P)", "ADX_tr1", "ADX_+dm1", "ADX_-dm1", "ADX_dx",
-          "ADX_signalIndicator", "RSI_gain", "RSI_loss", "RSI_averageGain", "RSI_averageLoss", "RSI_rsi", "RSI_signalIndicator", "Candlestick_signalIndicator"};
+      final String[] header = Stream.concat(Stream.of("Timestamp", "Open", "High", "Low", "Close", "ADX_adx", "ADX_+di(P)", "ADX_-di(P)", "ADX_tr1", "ADX_+dm1", "ADX_-dm1",
+          "ADX_dx", "ADX_signalIndicator", "RSI_gain", "RSI_loss", "RSI_averageGain", "RSI_averageLoss", "RSI_rsi", "RSI_signalIndicator", "Candlestick_signalIndicator"),
+          indicatorNames.stream()).toArray(String[]::new);
       IntStream.range(0, header.length).forEach(i -> headerRow.createCell(i).setCellValue(header[i]));
 
       final AtomicInteger i = new AtomicInteger(1);
-      CandlestickService.getCandlesticks(bufferedReader, timeFrame, symbol).forEach(candlestick -> {
+      candlesticks.forEach(candlestick -> {
         final Row row = sheet.createRow(i.getAndIncrement());
         IntStream.range(0, header.length).forEach(j -> {
           final Cell cell = row.createCell(j);
@@ -73,10 +121,11 @@ public class PrintsUtils {
             case 17 -> XmlUtils.setCellValue(candlestick.getRsi().getKeyRsi(), cell);
             case 18 -> XmlUtils.setCellValue(candlestick.getRsi().getSignal(), cell);
             case 19 -> XmlUtils.setCellValue(candlestick.getSignalIndicator(), cell);
+            default -> XmlUtils.setCellValue(candlestick.getIndicatorValue(header[j]), cell);
           }
         });
       });
-      workbook.write(new FileOutputStream(new File(outputFolder, symbol.name().concat("_").concat(timeFrame.name()).concat("_candlesticks.xlsx"))));
+      writeWorkbook(workbook, new File(outputFolder, symbol.name().concat("_").concat(timeFrame.name()).concat("_candlesticks.xlsx")));
     }
     log.info("Candlesticks Excel for symbol {} at timeframe {} printed", symbol.name(), timeFrame.name());
   }
@@ -84,7 +133,7 @@ public class PrintsUtils {
   @SneakyThrows
   public static void printCandlesticksMemoryExcel(final @NonNull File inputFile, final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol, final @NonNull File outputFolder) {
     log.info("Printing Memory Candlesticks Excel for symbol {} at timeframe {}", symbol.name(), timeFrame.name());
-    try (final Workbook workbook = new XSSFWorkbook(); FileWriter fileWriter = new FileWriter(
+    try (final SXSSFWorkbook workbook = getStreamingWorkbook(); FileWriter fileWriter = new FileWriter(
         new File(outputFolder, symbol.name().concat("_").concat(timeFrame.name()).concat("_candlesticks_memory.csv"))); CSVWriter csvWriter = new CSVWriter(fileWriter)) {
       final Sheet sheet = workbook.createSheet(symbol.name());
       final Row headerRow = sheet.createRow(0);
@@ -148,7 +197,7 @@ public class PrintsUtils {
         }).map(Object::toString).toArray(String[]::new);
         csvWriter.writeNext(lineCsv);
       });
-      workbook.write(new FileOutputStream(new File(outputFolder, symbol.name().concat("_").concat(timeFrame.name()).concat("_candlesticks_memory.xlsx"))));
+      writeWorkbook(workbook, new File(outputFolder, symbol.name().concat("_").concat(timeFrame.name()).concat("_candlesticks_memory.xlsx")));
     }
     log.info("Memory Candlesticks Excel for symbol {} at timeframe {} printed", symbol.name(), timeFrame.name());
   }
@@ -156,35 +205,35 @@ public class PrintsUtils {
   @SneakyThrows
   public static void printLastTickMemoryExcel(final @NonNull File inputFile, final @NonNull Symbol symbol, final @NonNull File outputFolder) {
     log.info("Printing Last Tick Excel for symbol {}", symbol.name());
-    try (final BufferedReader bufferedReader = new BufferedReader(new FileReader(inputFile)); FileWriter fileWriter = new FileWriter(
-        new File(outputFolder, symbol.name().concat("_lastTick.csv"))); CSVWriter csvWriter = new CSVWriter(fileWriter)) {
-      final AtomicReference<Tick> tick = new AtomicReference<>(new Tick(LocalDateTime.MIN, BigDecimal.valueOf(-1d), BigDecimal.valueOf(-1d)));
-      TickService.getTicks(bufferedReader).forEach(t -> tick.set(t.getKey()));
+    try (FileWriter fileWriter = new FileWriter(new File(outputFolder, symbol.name().concat("_lastTick.csv"))); CSVWriter csvWriter = new CSVWriter(fileWriter)) {
+      final Tick tick = TickCacheService.getTickCache(inputFile).getLastTick();
       final String[] header = new String[]{"dateTime", "bid", "ask", "symbol"};
       csvWriter.writeNext(header);
-      final String[] line = new String[]{tick.get().getDateTime().toString(), String.valueOf(tick.get().getBid().doubleValue()), String.valueOf(tick.get().getAsk().doubleValue()),
-          symbol.name()};
+      final String[] line = new String[]{tick.getDateTime().toString(), String.valueOf(tick.getBid().doubleValue()), String.valueOf(tick.getAsk().doubleValue()), symbol.name()};
       csvWriter.writeNext(line);
     }
   }
 
-  @SneakyThrows
   public static Tick lastTickMemoryExternalizing(final @NonNull File inputFile) {
     log.info("Printing Last Tick Externalizing");
-    try (final BufferedReader bufferedReader = new BufferedReader(new FileReader(inputFile))) {
-      final AtomicReference<Tick> tick = new AtomicReference<>(new Tick(LocalDateTime.MIN, BigDecimal.valueOf(-1d), BigDecimal.valueOf(-1d)));
-      TickService.getTicks(bufferedReader).forEach(t -> tick.set(t.getKey()));
-      return tick.get();
-    }
+    return TickCacheService.getTickCache(inputFile).getLastTick();
   }
 
-  @SneakyThrows
   public static void printTradesExcel(final @NonNull Collection<Trade> tradesCollection, final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol, final @NonNull File outputFolder) {
+    printTradesExcel(tradesCollection, timeFrame, symbol, outputFolder, "");
+  }
+
+  /**
+   * @param fileSuffix Appended to the file name, to print the trades of each TP/SL pair of a sweep in its own file
+   */
+  @SneakyThrows
+  public static void printTradesExcel(final @NonNull Collection<Trade> tradesCollection, final @NonNull TimeFrame timeFrame, final @NonNull Symbol symbol, final @NonNull File outputFolder,
+      final @NonNull String fileSuffix) {
     log.info("Printing Trades Excel for symbol {} at timeframe {}", symbol.name(), timeFrame.name());
     final DayOfWeek[] dayOfWeeks = Arrays.stream(DayOfWeek.values()).filter(dayOfWeek -> !DayOfWeek.SATURDAY.equals(dayOfWeek) && !DayOfWeek.SUNDAY.equals(dayOfWeek))
         .toArray(DayOfWeek[]::new);
     final int[] times = IntStream.range(0, 24 / timeFrame.getSlotTimeH()).toArray();
-    try (final Workbook workbook = new XSSFWorkbook()) {
+    try (final SXSSFWorkbook workbook = getStreamingWorkbook()) {
       Stream.of("TP", "SL", "TOTAL", "PERCENTAGE_TP", "BALANCE").forEach(sheetName -> {
         final Sheet sheet = workbook.createSheet(sheetName);
         final Row headerRow = sheet.createRow(0);
@@ -234,7 +283,7 @@ public class PrintsUtils {
         });
       });
 
-      workbook.write(new FileOutputStream(new File(outputFolder, symbol.name().concat("_").concat(timeFrame.name()).concat("_trades.xlsx"))));
+      writeWorkbook(workbook, new File(outputFolder, symbol.name().concat("_").concat(timeFrame.name()).concat(fileSuffix).concat("_trades.xlsx")));
     }
     log.info("Trades Excel for symbol {} at timeframe {} printed", symbol.name(), timeFrame.name());
   }
@@ -0,0 +1,104 @@
+package lu.forex.system.processor.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import lu.forex.system.processor.enums.Symbol;
+import lu.forex.system.processor.enums.TimeFrame;
+import lu.forex.system.processor.models.Candlestick;
+import lu.forex.system.processor.services.CandlestickStoreService.CandlestickStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class CandlestickStoreServiceTest {
+
+  private static final String DELTA_PROPERTY = "preprocessor.delta";
+  private static final int VERSION_OFFSET = Integer.BYTES;
+  private static final List<TimeFrame> TIME_FRAMES = List.of(TimeFrame.M15, TimeFrame.H1);
+
+  @TempDir
+  File folder;
+
+  @AfterEach
+  void clearProperties() {
+    System.clearProperty(DELTA_PROPERTY);
+  }
+
+  @Test
+  void readsTheWrittenStores() throws IOException {
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+    final File tickFile = TickFixtures.writeTickFile(this.folder, tickBytes, tickBytes.length);
+    final Map<TimeFrame, CandlestickStore> builtStoreMap = CandlestickStoreService.getCandlestickStores(tickFile, TIME_FRAMES, Symbol.EURUSD);
+
+    assertStores(builtStoreMap, CandlestickStoreService.getCandlestickStores(tickFile, TIME_FRAMES, Symbol.EURUSD));
+    assertEquals(TickCacheService.getTickCache(tickFile).getSize(), builtStoreMap.get(TimeFrame.M15).getTickSize());
+    assertTrue(builtStoreMap.get(TimeFrame.H1).getCandlesticks().size() > 0);
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void updatesTheStoresWithTheNewLines(final boolean delta) throws IOException {
+    System.setProperty(DELTA_PROPERTY, String.valueOf(delta));
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+    final int halfLength = TickFixtures.getHalfLength(tickBytes);
+    final File fullFile = TickFixtures.writeTickFile(new File(this.folder, "full"), tickBytes, tickBytes.length);
+    final File tickFile = TickFixtures.writeTickFile(this.folder, tickBytes, halfLength);
+    final long halfTickSize = CandlestickStoreService.getCandlestickStores(tickFile, TIME_FRAMES, Symbol.EURUSD).get(TimeFrame.M15).getTickSize();
+    assertEquals(delta, new File(new File(this.folder, ".checkpoints"), tickFile.getName() + ".checkpoint").exists());
+
+    TickFixtures.appendTickFile(tickFile, tickBytes, halfLength);
+    final Map<TimeFrame, CandlestickStore> timeFrameStoreMap = CandlestickStoreService.getCandlestickStores(tickFile, TIME_FRAMES, Symbol.EURUSD);
+
+    assertTrue(timeFrameStoreMap.get(TimeFrame.M15).getTickSize() > halfTickSize);
+    assertStores(CandlestickStoreService.getCandlestickStores(fullFile, TIME_FRAMES, Symbol.EURUSD), timeFrameStoreMap);
+    assertStores(timeFrameStoreMap, CandlestickStoreService.getCandlestickStores(tickFile, TIME_FRAMES, Symbol.EURUSD));
+  }
+
+  @Test
+  void rebuildsAnotherVersion() throws IOException {
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+    final File tickFile = TickFixtures.writeTickFile(this.folder, tickBytes, tickBytes.length);
+    final Map<TimeFrame, CandlestickStore> builtStoreMap = CandlestickStoreService.getCandlestickStores(tickFile, TIME_FRAMES, Symbol.EURUSD);
+    final File storeFile = new File(new File(this.folder, ".candles"), tickFile.getName() + "_" + TimeFrame.M15.name() + ".candles");
+    final int version = TickFixtures.bumpVersion(storeFile, VERSION_OFFSET);
+
+    final Map<TimeFrame, CandlestickStore> timeFrameStoreMap = CandlestickStoreService.getCandlestickStores(tickFile, TIME_FRAMES, Symbol.EURUSD);
+
+    assertEquals(version, TickFixtures.readInt(storeFile, VERSION_OFFSET));
+    assertStores(builtStoreMap, timeFrameStoreMap);
+  }
+
+  @Test
+  void seeksTheCandlesticksByTimestamp() throws IOException {
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+    final File tickFile = TickFixtures.writeTickFile(this.folder, tickBytes, tickBytes.length);
+    final CandlestickStore candlestickStore = CandlestickStoreService.getCandlestickStore(tickFile, TimeFrame.M15, Symbol.EURUSD);
+    final List<Candlestick> candlesticks = candlestickStore.getCandlesticks();
+    final LocalDateTime from = candlesticks.get(candlesticks.size() / 3).getTimestamp().plusSeconds(1);
+    final LocalDateTime to = candlesticks.get(candlesticks.size() * 2 / 3).getTimestamp();
+
+    final List<String> expected = TickFixtures.toStrings(
+        candlesticks.stream().filter(candlestick -> !candlestick.getTimestamp().isBefore(from) && candlestick.getTimestamp().isBefore(to)).toList());
+    assertEquals(expected, TickFixtures.toStrings(candlestickStore.getCandlesticks(from, to)));
+    assertEquals(TickFixtures.toStrings(candlesticks), TickFixtures.toStrings(candlestickStore.getCandlesticks(candlesticks.getFirst().getTimestamp(),
+        candlesticks.getLast().getTimestamp().plusSeconds(1))));
+    assertTrue(candlestickStore.getCandlesticks(to, from).isEmpty());
+  }
+
+  private static void assertStores(final Map<TimeFrame, CandlestickStore> expected, final Map<TimeFrame, CandlestickStore> actual) {
+    assertEquals(expected.keySet(), actual.keySet());
+    expected.forEach((timeFrame, candlestickStore) -> {
+      assertEquals(candlestickStore.getTickSize(), actual.get(timeFrame).getTickSize());
+      assertEquals(TickFixtures.toStrings(candlestickStore.getCandlesticks()), TickFixtures.toStrings(actual.get(timeFrame).getCandlesticks()));
+      assertEquals(TickFixtures.toStrings(candlestickStore.getMemoryCandlesticks()), TickFixtures.toStrings(actual.get(timeFrame).getMemoryCandlesticks()));
+    });
+  }
+}
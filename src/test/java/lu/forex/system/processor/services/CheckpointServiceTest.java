@@ -0,0 +1,95 @@
+package lu.forex.system.processor.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import lu.forex.system.processor.enums.NumericMode;
+import lu.forex.system.processor.enums.SignalRule;
+import lu.forex.system.processor.enums.Symbol;
+import lu.forex.system.processor.enums.TimeFrame;
+import lu.forex.system.processor.models.Tick;
+import lu.forex.system.processor.services.CandlestickService.CandlestickState;
+import lu.forex.system.processor.services.CheckpointService.Checkpoint;
+import lu.forex.system.processor.services.TickCacheService.TickCache;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CheckpointServiceTest {
+
+  private static final int VERSION_OFFSET = Integer.BYTES;
+  private static final List<TimeFrame> TIME_FRAMES = List.of(TimeFrame.M15, TimeFrame.H1);
+
+  @TempDir
+  File folder;
+
+  @Test
+  void continuesTheCandlesticksAfterTheCheckpoint() throws IOException {
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+    final int halfLength = TickFixtures.getHalfLength(tickBytes);
+    final File tickFile = TickFixtures.writeTickFile(this.folder, tickBytes, halfLength);
+    final TickCache halfTickCache = TickCacheService.getTickCache(tickFile);
+    final CandlestickState halfState = getInitState();
+    final List<String> candlesticks = new ArrayList<>(getCandlesticks(halfTickCache, 0, halfState));
+    CheckpointService.putCheckpoint(tickFile, halfTickCache, halfState);
+
+    TickFixtures.appendTickFile(tickFile, tickBytes, halfLength);
+    final TickCache tickCache = TickCacheService.getTickCache(tickFile);
+    final Checkpoint checkpoint = CheckpointService.getCheckpoint(tickFile, tickCache, TIME_FRAMES);
+
+    assertNotNull(checkpoint);
+    assertEquals(halfTickCache.getSize(), checkpoint.getTickSize());
+    candlesticks.addAll(getCandlesticks(tickCache, checkpoint.getTickSize(), checkpoint.getCandlestickState()));
+    assertEquals(getCandlesticks(tickCache, 0, getInitState()), candlesticks);
+  }
+
+  @Test
+  void ignoresAnotherVersion() throws IOException {
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+    final File tickFile = TickFixtures.writeTickFile(this.folder, tickBytes, tickBytes.length);
+    final TickCache tickCache = TickCacheService.getTickCache(tickFile);
+    final CandlestickState candlestickState = getInitState();
+    getCandlesticks(tickCache, 0, candlestickState);
+    CheckpointService.putCheckpoint(tickFile, tickCache, candlestickState);
+    assertNotNull(CheckpointService.getCheckpoint(tickFile, tickCache, TIME_FRAMES));
+
+    TickFixtures.bumpVersion(new File(new File(this.folder, ".checkpoints"), tickFile.getName() + ".checkpoint"), VERSION_OFFSET);
+
+    assertNull(CheckpointService.getCheckpoint(tickFile, tickCache, TIME_FRAMES));
+  }
+
+  @Test
+  void ignoresOtherTicks() throws IOException {
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+    final File tickFile = TickFixtures.writeTickFile(this.folder, tickBytes, tickBytes.length);
+    final TickCache tickCache = TickCacheService.getTickCache(tickFile);
+    final CandlestickState candlestickState = getInitState();
+    getCandlesticks(tickCache, 0, candlestickState);
+    CheckpointService.putCheckpoint(tickFile, tickCache, candlestickState);
+
+    final long lastModified = tickFile.lastModified();
+    final byte[] otherTickBytes = TickFixtures.getTickBytes(TickFixtures.SEED + 1);
+    TickFixtures.writeTickFile(this.folder, otherTickBytes, otherTickBytes.length);
+    TickFixtures.touch(tickFile, lastModified);
+
+    assertNull(CheckpointService.getCheckpoint(tickFile, TickCacheService.getTickCache(tickFile), TIME_FRAMES));
+    assertNull(CheckpointService.getCheckpoint(tickFile, tickCache, List.of(TimeFrame.M15)));
+  }
+
+  private static CandlestickState getInitState() {
+    return CandlestickService.getInitState(TIME_FRAMES, CandlestickService.MEMORY_REPOSITORY_SIZE, NumericMode.getDefault(), IndicatorService.getIndicators(),
+        SignalRule.getDefault());
+  }
+
+  private static List<String> getCandlesticks(final TickCache tickCache, final long from, final CandlestickState candlestickState) {
+    try (final Stream<Pair<Tick, Tick>> ticks = TickCacheService.getTicks(tickCache, from)) {
+      return CandlestickService.getCandlesticks(ticks, candlestickState, Symbol.EURUSD).map(String::valueOf).toList();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package lu.forex.system.processor.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.Map;
+import lu.forex.system.processor.enums.Symbol;
+import lu.forex.system.processor.enums.TimeFrame;
+import lu.forex.system.processor.models.CandlestickSeries;
+import lu.forex.system.processor.models.Trade;
+import lu.forex.system.processor.services.TradeService.RangerProfit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ResultCacheServiceTest {
+
+  private static final List<RangerProfit> RANGER_PROFITS = List.of(new RangerProfit(new BigDecimal("100"), new BigDecimal("-70.5")));
+  private static final List<Trade> TRADES = List.of(
+      new Trade(new BigDecimal("-70.5"), new BigDecimal("100"), DayOfWeek.MONDAY, 3, 12L, 7L, 5L, new BigDecimal("0.58333333333333333333"), new BigDecimal("347.499850")),
+      new Trade(new BigDecimal("-70.5"), new BigDecimal("100"), DayOfWeek.FRIDAY, 22, 1L, 0L, 1L, BigDecimal.ZERO, new BigDecimal("-71.500010")));
+
+  @TempDir
+  File folder;
+
+  @Test
+  void readsTheWrittenEntries() throws IOException {
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+    final File tickFile = TickFixtures.writeTickFile(this.folder, tickBytes, tickBytes.length);
+    final CandlestickSeries candlestickSeries = CandlestickStoreService.getCandlestickStore(tickFile, TimeFrame.M15, Symbol.EURUSD).getCandlesticks();
+    ResultCacheService.putCandlestickSeries(tickFile, Map.of(TimeFrame.M15, candlestickSeries));
+    ResultCacheService.putTrades(tickFile, Symbol.EURUSD, Map.of(TimeFrame.M15, TRADES), RANGER_PROFITS);
+
+    final Map<TimeFrame, CandlestickSeries> timeFrameSeriesMap = ResultCacheService.getCandlestickSeries(tickFile, List.of(TimeFrame.M15), false);
+    final Map<TimeFrame, List<Trade>> timeFrameTradesMap = ResultCacheService.getTrades(tickFile, Symbol.EURUSD, List.of(TimeFrame.M15), RANGER_PROFITS);
+
+    assertNotNull(timeFrameSeriesMap);
+    assertEquals(TickFixtures.toStrings(candlestickSeries), TickFixtures.toStrings(timeFrameSeriesMap.get(TimeFrame.M15)));
+    assertNotNull(timeFrameTradesMap);
+    assertEquals(TickFixtures.toStrings(TRADES), TickFixtures.toStrings(timeFrameTradesMap.get(TimeFrame.M15)));
+    assertNull(ResultCacheService.getCandlestickSeries(tickFile, List.of(TimeFrame.M15, TimeFrame.H1), false));
+    assertNull(ResultCacheService.getTrades(tickFile, Symbol.EURUSD, List.of(TimeFrame.M15), List.of(new RangerProfit(new BigDecimal("100"), new BigDecimal("-70")))));
+  }
+
+  @Test
+  void missesAnotherContent() throws IOException {
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+    final File tickFile = TickFixtures.writeTickFile(this.folder, tickBytes, tickBytes.length);
+    ResultCacheService.putTrades(tickFile, Symbol.EURUSD, Map.of(TimeFrame.M15, TRADES), RANGER_PROFITS);
+
+    final long lastModified = tickFile.lastModified();
+    final byte[] otherTickBytes = TickFixtures.getTickBytes(TickFixtures.SEED + 1);
+    TickFixtures.writeTickFile(this.folder, otherTickBytes, otherTickBytes.length);
+    TickFixtures.touch(tickFile, lastModified);
+
+    assertNull(ResultCacheService.getTrades(tickFile, Symbol.EURUSD, List.of(TimeFrame.M15), RANGER_PROFITS));
+  }
+
+  @Test
+  void keepsTheContentHashInTheSidecar() throws IOException {
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+    final File tickFile = TickFixtures.writeTickFile(this.folder, tickBytes, tickBytes.length);
+    ResultCacheService.putTrades(tickFile, Symbol.EURUSD, Map.of(TimeFrame.M15, TRADES), RANGER_PROFITS);
+    final File hashFile = new File(new File(this.folder, ".results"), tickFile.getName() + ".hash");
+    final int version;
+    try (final DataInputStream dataInput = new DataInputStream(new FileInputStream(hashFile))) {
+      version = dataInput.readInt();
+    }
+
+    // a sidecar of another version is not trusted, the content is hashed again
+    TickFixtures.touch(tickFile, tickFile.lastModified());
+    writeHash(hashFile, version + 1, tickFile, "0");
+    assertNotNull(ResultCacheService.getTrades(tickFile, Symbol.EURUSD, List.of(TimeFrame.M15), RANGER_PROFITS));
+
+    // a sidecar of the same version, size and last modified time is trusted, here with a wrong hash
+    TickFixtures.touch(tickFile, tickFile.lastModified());
+    writeHash(hashFile, version, tickFile, "0");
+    assertNull(ResultCacheService.getTrades(tickFile, Symbol.EURUSD, List.of(TimeFrame.M15), RANGER_PROFITS));
+  }
+
+  private static void writeHash(final File hashFile, final int version, final File tickFile, final String contentHash) throws IOException {
+    try (final DataOutputStream dataOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(hashFile)))) {
+      dataOutput.writeInt(version);
+      dataOutput.writeLong(tickFile.length());
+      dataOutput.writeLong(tickFile.lastModified());
+      dataOutput.writeUTF(contentHash);
+    }
+  }
+}
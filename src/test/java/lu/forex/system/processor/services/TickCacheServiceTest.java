@@ -0,0 +1,108 @@
+package lu.forex.system.processor.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import lu.forex.system.processor.services.TickCacheService.TickCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TickCacheServiceTest {
+
+  private static final int VERSION_OFFSET = Integer.BYTES;
+
+  @TempDir
+  File folder;
+
+  @Test
+  void readsTheTicksOfTheTextFile() throws IOException {
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+    final File tickFile = TickFixtures.writeTickFile(this.folder, tickBytes, tickBytes.length);
+
+    assertTicks(tickFile, TickCacheService.getTickCache(tickFile));
+    assertTicks(tickFile, TickCacheService.getTickCache(tickFile));
+  }
+
+  @Test
+  void appendsTheNewLines() throws IOException {
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+    final int halfLength = TickFixtures.getHalfLength(tickBytes);
+    final File tickFile = TickFixtures.writeTickFile(this.folder, tickBytes, halfLength);
+    final long halfSize = TickCacheService.getTickCache(tickFile).getSize();
+
+    TickFixtures.appendTickFile(tickFile, tickBytes, halfLength);
+    final TickCache tickCache = TickCacheService.getTickCache(tickFile);
+
+    assertTrue(tickCache.getSize() > halfSize);
+    assertEquals(tickFile.length(), tickCache.getInputLength());
+    assertTicks(tickFile, tickCache);
+  }
+
+  @Test
+  void rebuildsWhenTheTailChanged() throws IOException {
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+    final int halfLength = TickFixtures.getHalfLength(tickBytes);
+    final File tickFile = TickFixtures.writeTickFile(this.folder, tickBytes, halfLength);
+    TickCacheService.getTickCache(tickFile);
+
+    // a digit of the prices of the last line of the first half, so the file still only looks longer
+    final int position = getLastPriceDigit(tickBytes, halfLength);
+    try (final RandomAccessFile randomAccessFile = new RandomAccessFile(tickFile, "rw")) {
+      randomAccessFile.seek(position);
+      randomAccessFile.write(tickBytes[position] == '9' ? '8' : tickBytes[position] + 1);
+    }
+    TickFixtures.appendTickFile(tickFile, tickBytes, halfLength);
+
+    assertTicks(tickFile, TickCacheService.getTickCache(tickFile));
+  }
+
+  @Test
+  void rebuildsAnotherVersion() throws IOException {
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+    final File tickFile = TickFixtures.writeTickFile(this.folder, tickBytes, tickBytes.length);
+    TickCacheService.getTickCache(tickFile);
+    final File cacheFile = new File(new File(this.folder, ".ticks"), tickFile.getName() + ".ticks");
+    final int version = TickFixtures.bumpVersion(cacheFile, VERSION_OFFSET);
+
+    final TickCache tickCache = TickCacheService.getTickCache(tickFile);
+
+    assertEquals(version, TickFixtures.readInt(cacheFile, VERSION_OFFSET));
+    assertTicks(tickFile, tickCache);
+  }
+
+  /**
+   * @return The position of the last digit of the bid or the ask of the line ending at the length
+   */
+  private static int getLastPriceDigit(final byte[] tickBytes, final int length) {
+    int lineStart = length - 1;
+    while (tickBytes[lineStart - 1] != '\n') {
+      lineStart--;
+    }
+    int position = -1;
+    int tabs = 0;
+    for (int i = lineStart; i < length; i++) {
+      if (tickBytes[i] == '\t') {
+        tabs++;
+      } else if ((tabs == 2 || tabs == 3) && Character.isDigit(tickBytes[i])) {
+        position = i;
+      }
+    }
+    return position;
+  }
+
+  private static void assertTicks(final File tickFile, final TickCache tickCache) {
+    final List<long[]> ticks = new ArrayList<>();
+    TickService.readTicks(tickFile, (epochMilli, fixedBid, fixedAsk) -> ticks.add(new long[]{epochMilli, fixedBid, fixedAsk}));
+    assertEquals(ticks.size(), tickCache.getSize());
+    for (int i = 0; i < ticks.size(); i++) {
+      assertEquals(ticks.get(i)[0], tickCache.getTimestamp(i));
+      assertEquals(ticks.get(i)[1], tickCache.getFixedBid(i));
+      assertEquals(ticks.get(i)[2], tickCache.getFixedAsk(i));
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package lu.forex.system.processor.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import lu.forex.system.processor.enums.Symbol;
+
+/**
+ * Generated tick files shared by the tests of the sidecar files, the same ticks for the same seed.
+ */
+@UtilityClass
+class TickFixtures {
+
+  static final int TICKS = 40_000;
+  static final long SEED = 20240101L;
+  private static final LocalDate START = LocalDate.of(2024, 1, 1);
+  private static final double TICKS_PER_SECOND = 0.5;
+
+  static byte @NonNull [] getTickBytes(final long seed) {
+    return TickGeneratorService.getTickBytes(Symbol.EURUSD, START, TICKS_PER_SECOND, seed, TICKS);
+  }
+
+  /**
+   * @return The length of the lines up to about the half of the bytes, ending a line
+   */
+  static int getHalfLength(final byte @NonNull [] tickBytes) {
+    int length = tickBytes.length / 2;
+    while (tickBytes[length - 1] != '\n') {
+      length++;
+    }
+    return length;
+  }
+
+  static @NonNull File writeTickFile(final @NonNull File folder, final byte @NonNull [] tickBytes, final int length) throws IOException {
+    Files.createDirectories(folder.toPath());
+    final File tickFile = new File(folder, "EURUSD_test.csv");
+    Files.write(tickFile.toPath(), Arrays.copyOf(tickBytes, length));
+    return tickFile;
+  }
+
+  /**
+   * Append the bytes after the given length, as an export being updated, with a later last modified time.
+   */
+  static void appendTickFile(final @NonNull File tickFile, final byte @NonNull [] tickBytes, final int from) throws IOException {
+    final long lastModified = tickFile.lastModified();
+    Files.write(tickFile.toPath(), Arrays.copyOfRange(tickBytes, from, tickBytes.length), StandardOpenOption.APPEND);
+    touch(tickFile, lastModified);
+  }
+
+  /**
+   * Set a last modified time after the given one, the same file content being otherwise seen as unchanged within the precision of the file system.
+   */
+  static void touch(final @NonNull File file, final long lastModified) {
+    if (!file.setLastModified(lastModified + 2_000L)) {
+      throw new IllegalStateException("Last modified time of " + file.getName() + " not set");
+    }
+  }
+
+  /**
+   * Increment the version following the magic number at the start of a sidecar file.
+   *
+   * @return The version before
+   */
+  static int bumpVersion(final @NonNull File file, final int offset) throws IOException {
+    try (final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      randomAccessFile.seek(offset);
+      final int version = randomAccessFile.readInt();
+      randomAccessFile.seek(offset);
+      randomAccessFile.writeInt(version + 1);
+      return version;
+    }
+  }
+
+  static int readInt(final @NonNull File file, final int offset) throws IOException {
+    try (final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      randomAccessFile.seek(offset);
+      return randomAccessFile.readInt();
+    }
+  }
+
+  static @NonNull List<String> toStrings(final @NonNull Collection<?> objects) {
+    return objects.stream().map(String::valueOf).toList();
+  }
+}
@@ -0,0 +1,39 @@
+package lu.forex.system.processor.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import lu.forex.system.processor.utils.DateTimeUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class TickLineParserTest {
+
+  @Test
+  void parsesTheDateTimeAndThePrices() {
+    final TickLineParser tickLineParser = parse("2024.02.29\t23:59:58.5\t1.08345\t1.0835");
+
+    assertEquals(DateTimeUtils.toEpochMilli(LocalDateTime.of(2024, 2, 29, 23, 59, 58, 500_000_000)), tickLineParser.getEpochMilli());
+    assertEquals(108_345L, tickLineParser.getFixedBid());
+    assertEquals(108_350L, tickLineParser.getFixedAsk());
+    assertEquals(DateTimeUtils.toEpochMilli(LocalDateTime.of(2024, 1, 2, 3, 4)), parse("2024.01.02\t03:04\t\t1.0835").getEpochMilli());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"", "2024.01.02", "2024.01.02\t03:0", "2024.01.02\t03:04:5", "2024-01-02\t03:04\t1\t1", "2024.01.02\t03.04\t1\t1",
+      "2024.13.02\t03:04\t1\t1", "2024.00.02\t03:04\t1\t1", "2023.02.29\t03:04\t1\t1", "2024.04.31\t03:04\t1\t1", "2024.01.02\t24:00\t1\t1",
+      "2024.01.02\t03:60\t1\t1", "2024.01.02\t03:04:60\t1\t1"})
+  void rejectsMalformedDateTimes(final String line) {
+    assertThrows(IllegalStateException.class, () -> parse(line));
+  }
+
+  private static TickLineParser parse(final String line) {
+    final byte[] buffer = line.getBytes(StandardCharsets.US_ASCII);
+    final TickLineParser tickLineParser = new TickLineParser();
+    tickLineParser.parse(buffer, 0, buffer.length);
+    return tickLineParser;
+  }
+}
@@ -0,0 +1,59 @@
+package lu.forex.system.processor.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import lu.forex.system.processor.enums.Symbol;
+import lu.forex.system.processor.enums.TimeFrame;
+import lu.forex.system.processor.services.TradeService.PreTrade;
+import lu.forex.system.processor.services.TradeService.RangerProfit;
+import lu.forex.system.processor.services.TradeService.TimeScope;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Every mode gets its own copy of the tick file, so the trades of one are not read from the result cache of the other.
+ */
+class TradeServiceTest {
+
+  private static final String TICK_REPLAY_PROPERTY = "trade.tickReplay";
+  private static final List<RangerProfit> RANGER_PROFITS = TradeService.getRangerProfits(List.of(new BigDecimal("5"), new BigDecimal("10"), new BigDecimal("20")),
+      List.of(new BigDecimal("0.5"), new BigDecimal("1")));
+
+  @TempDir
+  File folder;
+
+  @AfterEach
+  void clearProperties() {
+    System.clearProperty(TICK_REPLAY_PROPERTY);
+  }
+
+  @Test
+  void findsTheSameTradesInTheTickIndexAsInTheTickReplay() throws IOException {
+    final byte[] tickBytes = TickFixtures.getTickBytes(TickFixtures.SEED);
+
+    final Map<TimeFrame, List<String>> indexTradesMap = getTrades(TickFixtures.writeTickFile(new File(this.folder, "index"), tickBytes, tickBytes.length));
+    System.setProperty(TICK_REPLAY_PROPERTY, "true");
+    final Map<TimeFrame, List<String>> replayTradesMap = getTrades(TickFixtures.writeTickFile(new File(this.folder, "replay"), tickBytes, tickBytes.length));
+
+    assertFalse(indexTradesMap.values().stream().allMatch(List::isEmpty));
+    assertEquals(replayTradesMap, indexTradesMap);
+  }
+
+  private static Map<TimeFrame, List<String>> getTrades(final File tickFile) {
+    final Map<TimeFrame, Map<TimeScope, List<PreTrade>>> timeFrameScopeMap = new EnumMap<>(TimeFrame.class);
+    TradeService.getCandlestickLists(tickFile, Arrays.asList(TimeFrame.values()), Symbol.EURUSD)
+        .forEach((timeFrame, candlesticks) -> timeFrameScopeMap.put(timeFrame, TradeService.getTimeScopeListMap(timeFrame, Symbol.EURUSD, candlesticks, RANGER_PROFITS)));
+    final Map<TimeFrame, List<String>> timeFrameTradesMap = new EnumMap<>(TimeFrame.class);
+    TradeService.getTrades(tickFile, Symbol.EURUSD, timeFrameScopeMap).forEach((timeFrame, trades) -> timeFrameTradesMap.put(timeFrame, TickFixtures.toStrings(trades)));
+    return timeFrameTradesMap;
+  }
+}